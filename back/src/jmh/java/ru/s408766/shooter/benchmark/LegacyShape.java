@@ -0,0 +1,35 @@
+package ru.s408766.shooter.benchmark;
+
+import ru.s408766.shooter.utils.ProjectConstants;
+import ru.s408766.shooter.utils.models.Point;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+// Shape до перехода на hit(): поиск радиуса стримом на каждом создании, sqrt/pow в четверти круга
+final class LegacyShape {
+    private final double radius;
+
+    LegacyShape(double radius) throws InvalidParameterException {
+        if (Arrays.stream(ProjectConstants.R_VALUES).noneMatch(allowedR -> allowedR == radius)) {
+            throw new InvalidParameterException(String.format("Invalid shape radius, only values from %s are allowed", Arrays.toString(ProjectConstants.R_VALUES)));
+        }
+        this.radius = radius;
+    }
+
+    boolean containsPoint(Point point) {
+        if (point.x() <= 0 && point.y() > 0) {
+            // Top left sector
+            return point.y() <= Math.sqrt(Math.pow(radius / 2, 2) - Math.pow(point.x(), 2));
+        } else if (point.x() <= 0 && point.y() <= 0) {
+            // Bottom left sector
+            return point.x() >= -radius / 2 && point.y() >= -radius;
+        } else if (point.x() > 0 && point.y() <= 0) {
+            // Bottom right sector
+            return point.y() >= point.x() - radius / 2;
+        } else {
+            // Top right sector
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.s408766.shooter.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.s408766.shooter.utils.hashing.Pbkdf2PasswordHasher;
+
+import java.util.concurrent.TimeUnit;
+
+// Подбор shooter.password.pbkdf2-iterations: время одной проверки пароля (как на /auth/signin) по стоимостям.
+// SampleTime печатает p0.99; гонять с -t равным shooter.password.threads (по умолчанию - числу ядер),
+// тогда потоки делят ядра так же, как пул хэширования. Берём наибольшую стоимость, у которой p0.99
+// укладывается в целевую задержку, а threads / среднее время покрывает пиковую частоту входов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+    private static final String PASSWORD = "load-test-password";
+
+    @Param({"100000", "210000", "310000", "600000"})
+    public int iterations;
+
+    private Pbkdf2PasswordHasher hasher;
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        hasher = new Pbkdf2PasswordHasher(iterations);
+        storedHash = hasher.hash(PASSWORD);
+        if (!hasher.verify(PASSWORD, storedHash)) throw new IllegalStateException("Hash does not verify");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify(PASSWORD, storedHash);
+    }
+}
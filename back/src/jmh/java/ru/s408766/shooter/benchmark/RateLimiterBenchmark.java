@@ -0,0 +1,98 @@
+package ru.s408766.shooter.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.s408766.shooter.utils.ratelimit.ClientAddress;
+import ru.s408766.shooter.utils.ratelimit.RateLimit;
+import ru.s408766.shooter.utils.ratelimit.RateLimiter;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Накладные расходы RateLimitFilter на запрос под конкуренцией (8 потоков): поиск ограничений метода,
+// адрес клиента из X-Forwarded-For и взятие токенов. keys=shared - все потоки бьют в одну корзину
+// (один клиент за NAT), per-thread - каждый поток в свою. Пропускной способности корзин хватает,
+// чтобы на allowed не было отказов; rejected меряет путь отказа в исчерпанной корзине
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+    // те же ключи, что у входа: IP и email, но с запасом по частоте (интервал 1 нс)
+    @RateLimit(name = "bench-ip", key = RateLimit.Key.IP, perMinute = 60_000_000_000L, burst = 1_000_000_000L)
+    @RateLimit(name = "bench-email", key = RateLimit.Key.EMAIL, perMinute = 60_000_000_000L, burst = 1_000_000_000L)
+    public void twoLimits() {
+    }
+
+    @RateLimit(name = "bench-user", key = RateLimit.Key.USER, perMinute = 60_000_000_000L, burst = 1_000_000_000L)
+    public void oneLimit() {
+    }
+
+    @RateLimit(name = "bench-exhausted", key = RateLimit.Key.USER, perMinute = 1, burst = 1)
+    public void exhausted() {
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+        String ip;
+        String email;
+        String user;
+        List<String> forwardedFor;
+
+        @Setup
+        public void setUp(RateLimiterBenchmark benchmark) {
+            int id = "shared".equals(benchmark.keys) ? 0 : NEXT.incrementAndGet();
+            ip = "203.0.113." + id;
+            email = "user" + id + "@example.com";
+            user = Integer.toString(id);
+            forwardedFor = List.of("198.51.100.1, " + ip);
+        }
+    }
+
+    @Param({"shared", "per-thread"})
+    public String keys;
+
+    private final RateLimiter rateLimiter = new RateLimiter();
+    private final ClientAddress clientAddress = new ClientAddress(ClientAddress.Source.X_FORWARDED_FOR, List.of("10.0.0.0/8"));
+    private Method oneLimit;
+    private Method twoLimits;
+    private Method exhausted;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        oneLimit = RateLimiterBenchmark.class.getMethod("oneLimit");
+        twoLimits = RateLimiterBenchmark.class.getMethod("twoLimits");
+        exhausted = RateLimiterBenchmark.class.getMethod("exhausted");
+        // корзину исчерпанного ограничения опустошаем заранее
+        RateLimiter.tryAcquireAll(rateLimiter.forMethod(exhausted), new String[]{"0"});
+    }
+
+    @Benchmark
+    public long allowedOneLimit(Client client) {
+        List<RateLimiter.Limit> limits = rateLimiter.forMethod(oneLimit);
+        return RateLimiter.tryAcquireAll(limits, new String[]{client.user});
+    }
+
+    @Benchmark
+    public long allowedTwoLimits(Client client) {
+        List<RateLimiter.Limit> limits = rateLimiter.forMethod(twoLimits);
+        String ip = clientAddress.resolve("10.0.0.1", client.forwardedFor);
+        return RateLimiter.tryAcquireAll(limits, new String[]{ip, client.email});
+    }
+
+    @Benchmark
+    public long rejected(Client client) {
+        List<RateLimiter.Limit> limits = rateLimiter.forMethod(exhausted);
+        return RateLimiter.tryAcquireAll(limits, new String[]{"0"});
+    }
+
+    @Benchmark
+    public String resolveClientAddress(Client client) {
+        return clientAddress.resolve("10.0.0.1", client.forwardedFor);
+    }
+}
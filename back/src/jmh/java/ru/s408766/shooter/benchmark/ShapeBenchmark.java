@@ -0,0 +1,74 @@
+package ru.s408766.shooter.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.s408766.shooter.utils.ProjectConstants;
+import ru.s408766.shooter.utils.models.Point;
+import ru.s408766.shooter.utils.models.Shape;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Старая проверка (LegacyShape + Point) против Shape.hit по одной точке и пачкой.
+// Перед замером все пути сверяются на тех же случайных точках: расхождение валит прогон
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeBenchmark {
+    private static final int POINTS = 4096;
+
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+    private final double[] radii = new double[POINTS];
+    private final boolean[] out = new boolean[POINTS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(408766);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = ProjectConstants.MIN_X + random.nextDouble() * (ProjectConstants.MAX_X - ProjectConstants.MIN_X);
+            ys[i] = ProjectConstants.MIN_Y + random.nextDouble() * (ProjectConstants.MAX_Y - ProjectConstants.MIN_Y);
+            radii[i] = ProjectConstants.R_VALUES[random.nextInt(ProjectConstants.R_VALUES.length)];
+        }
+        Shape.hit(xs, ys, radii, out);
+        for (int i = 0; i < POINTS; i++) {
+            boolean legacy = new LegacyShape(radii[i]).containsPoint(new Point(xs[i], ys[i]));
+            if (legacy != Shape.hit(xs[i], ys[i], radii[i]) || legacy != out[i]) {
+                throw new IllegalStateException("Hit paths differ at (" + xs[i] + ", " + ys[i] + "), r=" + radii[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void legacyContainsPoint(Blackhole blackhole) {
+        for (int i = 0; i < POINTS; i++) {
+            blackhole.consume(new LegacyShape(radii[i]).containsPoint(new Point(xs[i], ys[i])));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void hit(Blackhole blackhole) {
+        for (int i = 0; i < POINTS; i++) {
+            blackhole.consume(Shape.hit(xs[i], ys[i], radii[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public boolean[] bulkHit() {
+        Shape.hit(xs, ys, radii, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public boolean[] bulkHitSingleRadius() {
+        Shape.hit(xs, ys, 2, out);
+        return out;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.s408766.shooter.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.apache.openejb.testing.ApplicationComposers;
+import ru.s408766.shooter.utils.services.mail.InMemoryMailTransport;
+
+import java.net.URI;
+
+// Встроенный PostgreSQL (настоящий, миграции с секционированием на нём работают) и приложение поверх него
+final class EmbeddedServer implements AutoCloseable {
+    static final int DB_PORT = 54329;
+    static final int HTTP_PORT = 48080;
+    static final String CONTEXT_ROOT = "shooter";
+
+    private final EmbeddedPostgres database;
+    private final ApplicationComposers composers;
+    private final LoadTestApplication application;
+
+    private EmbeddedServer(EmbeddedPostgres database, ApplicationComposers composers, LoadTestApplication application) {
+        this.database = database;
+        this.composers = composers;
+        this.application = application;
+    }
+
+    static EmbeddedServer start() throws Exception {
+        EmbeddedPostgres database = EmbeddedPostgres.builder().setPort(DB_PORT).start();
+        try {
+            LoadTestApplication application = new LoadTestApplication();
+            ApplicationComposers composers = new ApplicationComposers(LoadTestApplication.class);
+            composers.before(application);
+            return new EmbeddedServer(database, composers, application);
+        } catch (Exception e) {
+            database.close();
+            throw e;
+        }
+    }
+
+    URI baseUri() {
+        return URI.create("http://localhost:" + HTTP_PORT + "/" + CONTEXT_ROOT + "/api/");
+    }
+
+    InMemoryMailTransport mailTransport() {
+        return application.getMailTransport();
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            composers.after();
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.s408766.shooter.loadtest;
+
+import java.util.Arrays;
+
+// Задержки одного клиента по операциям; у каждого клиента свой, так что без синхронизации.
+// Хранятся все значения: перцентили в отчёте точные, а не по корзинам гистограммы
+final class LatencyRecorder {
+    private final long[][] latencies = new long[Operation.values().length][1024];
+    private final int[] counts = new int[Operation.values().length];
+    private final int[] errors = new int[Operation.values().length];
+    private final long measureFromNanos;
+
+    LatencyRecorder(long measureFromNanos) {
+        this.measureFromNanos = measureFromNanos;
+    }
+
+    // прогрев в отчёт не попадает
+    void record(Operation operation, long startNanos, long endNanos, boolean success) {
+        if (startNanos < measureFromNanos) return;
+        int index = operation.ordinal();
+        if (!success) {
+            errors[index]++;
+            return;
+        }
+        if (counts[index] == latencies[index].length) {
+            latencies[index] = Arrays.copyOf(latencies[index], counts[index] * 2);
+        }
+        latencies[index][counts[index]++] = endNanos - startNanos;
+    }
+
+    long[] latencies(Operation operation) {
+        return Arrays.copyOf(latencies[operation.ordinal()], counts[operation.ordinal()]);
+    }
+
+    int errors(Operation operation) {
+        return errors[operation.ordinal()];
+    }
+}
@@ -0,0 +1,153 @@
+package ru.s408766.shooter.loadtest;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Нагрузочный прогон: clients пользователей параллельно гоняют смесь Operation в течение warmup + duration секунд.
+// Отчёт (пропускная способность и p50/p99/p999 по операциям) пишется JSON'ом, чтобы сравнивать коммиты диффом
+public final class LoadTest {
+    private static final Logger LOGGER = Logger.getLogger(LoadTest.class.getName());
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 64);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+        int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+        long seed = Long.getLong("loadtest.seed", 42);
+        Path report = Path.of(System.getProperty("loadtest.report", "build/reports/loadtest/result.json"));
+
+        configureApplication();
+        try (EmbeddedServer server = EmbeddedServer.start()) {
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long deadline = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+            List<LoadTestClient> loadClients = new ArrayList<>(clients);
+            List<Future<?>> running = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                LoadTestClient client = new LoadTestClient(http, server.baseUri(), server.mailTransport(),
+                        new LatencyRecorder(measureFrom), seed, i);
+                loadClients.add(client);
+                running.add(executor.submit(() -> {
+                    client.run(deadline);
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) future.get();
+            long measuredNanos = Math.min(System.nanoTime(), deadline) - measureFrom;
+            executor.shutdown();
+
+            writeReport(report, loadClients, clients, warmupSeconds, durationSeconds, seed, measuredNanos,
+                    executor.getClass().getSimpleName());
+            LOGGER.info("Load test report written to " + report.toAbsolutePath());
+        }
+    }
+
+    // Приложение читает настройки через ProjectSettings, так что задаём их до старта контейнера
+    private static void configureApplication() throws IOException {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        setDefault("shooter.jwt.secret", Base64.getEncoder().encodeToString(secret));
+        // коды подтверждения читаются прямо из InMemoryMailTransport
+        setDefault("shooter.mail.transport", "memory");
+        // меряем сервис, а не отказы 429
+        setDefault("shooter.ratelimit.enabled", "false");
+        // архив прогона - во временном каталоге, а не в ~/shooter-archive разработчика
+        setDefault("shooter.archive.dir", Files.createTempDirectory("shooter-loadtest-archive").toString());
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+
+    // По виртуальному потоку на клиента, если JVM их умеет (21+), иначе обычный пул
+    private static void writeReport(Path report, List<LoadTestClient> clients, int clientCount, int warmupSeconds,
+                                    int durationSeconds, long seed, long measuredNanos, String executor) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        double measuredSeconds = measuredNanos / 1e9;
+        try (OutputStream out = Files.newOutputStream(report);
+             JsonGenerator json = Json.createGeneratorFactory(Map.of(JsonGenerator.PRETTY_PRINTING, true))
+                     .createGenerator(out)) {
+            json.writeStartObject()
+                    .write("startedAt", Instant.now().minusNanos(measuredNanos).toString())
+                    .write("java", System.getProperty("java.version"))
+                    .write("profile", System.getProperty("loadtest.profile", "prod"))
+                    .write("executor", executor)
+                    .write("clients", clientCount)
+                    .write("seed", seed)
+                    .write("warmupSeconds", warmupSeconds)
+                    .write("durationSeconds", durationSeconds)
+                    .write("measuredSeconds", measuredSeconds);
+            long[] all = new long[0];
+            int allErrors = 0;
+            json.writeStartObject("operations");
+            for (Operation operation : Operation.values()) {
+                long[] latencies = new long[0];
+                int errors = 0;
+                for (LoadTestClient client : clients) {
+                    latencies = concat(latencies, client.recorder().latencies(operation));
+                    errors += client.recorder().errors(operation);
+                }
+                json.writeStartObject(operation.reportName());
+                writeStats(json, latencies, errors, measuredSeconds);
+                json.writeEnd();
+                all = concat(all, latencies);
+                allErrors += errors;
+            }
+            json.writeEnd();
+            json.writeStartObject("total");
+            writeStats(json, all, allErrors, measuredSeconds);
+            json.writeEnd();
+            json.writeEnd();
+        }
+    }
+
+    private static void writeStats(JsonGenerator json, long[] latencies, int errors, double measuredSeconds) {
+        Arrays.sort(latencies);
+        json.write("count", latencies.length)
+                .write("errors", errors)
+                .write("throughputPerSecond", latencies.length / measuredSeconds)
+                .write("p50Ms", percentile(latencies, 0.50))
+                .write("p99Ms", percentile(latencies, 0.99))
+                .write("p999Ms", percentile(latencies, 0.999))
+                .write("maxMs", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / NANOS_PER_MILLI);
+    }
+
+    // nearest-rank по отсортированному массиву
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / NANOS_PER_MILLI;
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
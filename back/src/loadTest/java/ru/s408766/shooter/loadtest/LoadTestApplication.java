@@ -0,0 +1,95 @@
+package ru.s408766.shooter.loadtest;
+
+import jakarta.ejb.EJB;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Descriptor;
+import org.apache.openejb.testing.Descriptors;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import ru.s408766.shooter.MainApplication;
+import ru.s408766.shooter.resources.AuthResource;
+import ru.s408766.shooter.resources.MetricsResource;
+import ru.s408766.shooter.resources.ResultsResource;
+import ru.s408766.shooter.utils.CorsFilter;
+import ru.s408766.shooter.utils.MetricsFilter;
+import ru.s408766.shooter.utils.RateLimitFilter;
+import ru.s408766.shooter.utils.ResultViewsWriter;
+import ru.s408766.shooter.utils.ServerBusyExceptionMapper;
+import ru.s408766.shooter.utils.metrics.DbTimingInterceptor;
+import ru.s408766.shooter.utils.metrics.MetricsRegistry;
+import ru.s408766.shooter.utils.ratelimit.RateLimiter;
+import ru.s408766.shooter.utils.services.PasswordHashingService;
+import ru.s408766.shooter.utils.services.ResultFeedService;
+import ru.s408766.shooter.utils.services.ResultSnapshotService;
+import ru.s408766.shooter.utils.services.ResultTileService;
+import ru.s408766.shooter.utils.services.TokenService;
+import ru.s408766.shooter.utils.services.UserCacheService;
+import ru.s408766.shooter.utils.services.db.ResultArchiveService;
+import ru.s408766.shooter.utils.services.db.ResultService;
+import ru.s408766.shooter.utils.services.db.ResultWriter;
+import ru.s408766.shooter.utils.services.db.SchemaMigrator;
+import ru.s408766.shooter.utils.services.db.UserService;
+import ru.s408766.shooter.utils.services.mail.InMemoryMailTransport;
+import ru.s408766.shooter.utils.services.mail.MailDispatcher;
+import ru.s408766.shooter.utils.services.verification.InMemoryVerificationCodeStore;
+import ru.s408766.shooter.utils.services.verification.TwoFactorService;
+
+import java.util.Properties;
+
+// Приложение целиком во встроенном OpenEJB (EJB, CDI, JTA, JAX-RS на CXF).
+// persistence.xml - тот же, что уходит в WAR, после подстановки профиля (build/resources/main)
+@EnableServices("jaxrs")
+@Descriptors(@Descriptor(name = "persistence.xml", path = "build/resources/main/META-INF/persistence.xml"))
+public class LoadTestApplication {
+    // ApplicationComposer внедряет бины приложения и в этот объект
+    @EJB
+    private MailDispatcher mailDispatcher;
+
+    public InMemoryMailTransport getMailTransport() {
+        return (InMemoryMailTransport) mailDispatcher.getTransport();
+    }
+
+    @Configuration
+    public Properties configuration() {
+        Properties properties = new Properties();
+        properties.setProperty("httpejbd.port", Integer.toString(EmbeddedServer.HTTP_PORT));
+        properties.setProperty("openejb.jul.forceReload", "true");
+        return properties;
+    }
+
+    @Module
+    @Classes(cdi = true, value = {
+            LoadTestDataSource.class,
+            MainApplication.class,
+            AuthResource.class,
+            ResultsResource.class,
+            MetricsResource.class,
+            CorsFilter.class,
+            MetricsFilter.class,
+            RateLimitFilter.class,
+            ResultViewsWriter.class,
+            ServerBusyExceptionMapper.class,
+            MetricsRegistry.class,
+            DbTimingInterceptor.class,
+            RateLimiter.class,
+            TokenService.class,
+            UserCacheService.class,
+            PasswordHashingService.class,
+            ResultTileService.class,
+            ResultFeedService.class,
+            ResultSnapshotService.class,
+            UserService.class,
+            ResultService.class,
+            ResultArchiveService.class,
+            ResultWriter.class,
+            SchemaMigrator.class,
+            MailDispatcher.class,
+            TwoFactorService.class,
+            InMemoryVerificationCodeStore.class
+    })
+    public WebApp application() {
+        return new WebApp().contextRoot(EmbeddedServer.CONTEXT_ROOT);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.s408766.shooter.loadtest;
+
+import org.json.JSONObject;
+import ru.s408766.shooter.resources.ResultsResource;
+import ru.s408766.shooter.utils.ProjectConstants;
+import ru.s408766.shooter.utils.services.mail.InMemoryMailTransport;
+import ru.s408766.shooter.utils.services.mail.OutgoingMail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Один пользователь: регистрируется, входит и дальше выполняет смесь операций по своему Random с фиксированным seed
+final class LoadTestClient {
+    private static final Pattern CODE = Pattern.compile("\\b(\\d{6})\\b");
+    private static final long CODE_WAIT_MILLIS = 10_000;
+    private static final String PASSWORD = "load-test-password";
+    private static final int PAGE_SIZE = 100;
+
+    private final HttpClient http;
+    private final URI baseUri;
+    private final InMemoryMailTransport mailTransport;
+    private final LatencyRecorder recorder;
+    private final Random random;
+    private final int clientId;
+    private int accounts;
+    private String email;
+    private String token;
+    // версия снимка для get-results?since=, как её хранит фронт
+    private long resultsVersion;
+
+    LoadTestClient(HttpClient http, URI baseUri, InMemoryMailTransport mailTransport,
+                   LatencyRecorder recorder, long seed, int clientId) {
+        this.http = http;
+        this.baseUri = baseUri;
+        this.mailTransport = mailTransport;
+        this.recorder = recorder;
+        this.random = new Random(seed + clientId);
+        this.clientId = clientId;
+    }
+
+    LatencyRecorder recorder() {
+        return recorder;
+    }
+
+    void run(long deadlineNanos) throws IOException, InterruptedException {
+        signUp();
+        signIn();
+        int totalWeight = 0;
+        for (Operation operation : Operation.values()) totalWeight += operation.weight();
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            int pick = random.nextInt(totalWeight);
+            for (Operation operation : Operation.values()) {
+                pick -= operation.weight();
+                if (pick < 0) {
+                    execute(operation);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void execute(Operation operation) throws IOException, InterruptedException {
+        switch (operation) {
+            case SIGN_UP -> signUp();
+            case SIGN_IN -> signIn();
+            case ADD_RESULT -> addResult();
+            case GET_RESULTS -> getResults();
+            case SYNC_RESULTS -> syncResults();
+            default -> throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    // новый адрес на каждую регистрацию; email ограничен 36 символами
+    private void signUp() throws IOException, InterruptedException {
+        email = String.format(Locale.ROOT, "lt%d-%d@load.test", clientId, accounts++);
+        resultsVersion = 0;
+        HttpResponse<String> codeResponse = send(Operation.REQUEST_CODE, post("auth/request-2fa",
+                new JSONObject().put("email", email)));
+        if (codeResponse.statusCode() != 200) return;
+        String code = awaitCode();
+        if (code == null) return;
+        HttpResponse<String> response = send(Operation.SIGN_UP, post("auth/signup", new JSONObject()
+                .put("email", email)
+                .put("password", PASSWORD)
+                .put("verificationCode", code)));
+        if (response.statusCode() == 200) token = new JSONObject(response.body()).getString("token");
+    }
+
+    private void signIn() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(Operation.SIGN_IN, post("auth/signin", new JSONObject()
+                .put("email", email)
+                .put("password", PASSWORD)));
+        if (response.statusCode() == 200) token = new JSONObject(response.body()).getString("token");
+    }
+
+    private void addResult() throws IOException, InterruptedException {
+        // координаты с шагом 0.1, как их шлёт фронт
+        double x = (random.nextInt(81) - 40) / 10.0;
+        double y = (random.nextInt(101) - 50) / 10.0;
+        double r = ProjectConstants.R_VALUES[random.nextInt(ProjectConstants.R_VALUES.length)];
+        send(Operation.ADD_RESULT, authorized(post("results/add-result", new JSONObject()
+                .put("x", x)
+                .put("y", y)
+                .put("shapeRadius", r))));
+    }
+
+    private void getResults() throws IOException, InterruptedException {
+        send(Operation.GET_RESULTS, authorized(HttpRequest.newBuilder(baseUri.resolve("results/get-results?limit=" + PAGE_SIZE))
+                .GET()));
+    }
+
+    private void syncResults() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(Operation.SYNC_RESULTS, authorized(HttpRequest.newBuilder(
+                baseUri.resolve("results/get-results?since=" + resultsVersion)).GET()));
+        response.headers().firstValue(ResultsResource.VERSION_HEADER)
+                .ifPresent(version -> resultsVersion = Long.parseLong(version));
+    }
+
+    private String awaitCode() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CODE_WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            OutgoingMail mail = mailTransport.getLastMail(email);
+            if (mail != null) {
+                Matcher matcher = CODE.matcher(mail.text());
+                if (matcher.find()) return matcher.group(1);
+            }
+            Thread.sleep(5);
+        }
+        return null;
+    }
+
+    private HttpRequest.Builder post(String path, JSONObject body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private HttpRequest.Builder authorized(HttpRequest.Builder request) {
+        return request.header("Authorization", "Bearer " + token);
+    }
+
+    private HttpResponse<String> send(Operation operation, HttpRequest.Builder request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        recorder.record(operation, start, System.nanoTime(), response.statusCode() / 100 == 2);
+        return response;
+    }
+}
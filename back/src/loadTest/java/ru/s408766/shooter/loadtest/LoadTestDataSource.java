@@ -0,0 +1,21 @@
+package ru.s408766.shooter.loadtest;
+
+import jakarta.annotation.sql.DataSourceDefinition;
+import jakarta.ejb.Singleton;
+
+// То же имя, что у <data-source> в WEB-INF/web.xml, но на встроенный PostgreSQL из EmbeddedServer
+@DataSourceDefinition(
+        name = "java:app/jdbc/shooter",
+        className = "org.postgresql.ds.PGSimpleDataSource",
+        serverName = "localhost",
+        portNumber = EmbeddedServer.DB_PORT,
+        databaseName = "postgres",
+        user = "postgres",
+        password = "postgres",
+        initialPoolSize = 5,
+        minPoolSize = 5,
+        maxPoolSize = 20,
+        maxIdleTime = 300)
+@Singleton
+public class LoadTestDataSource {
+}
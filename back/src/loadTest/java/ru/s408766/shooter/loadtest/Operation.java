@@ -0,0 +1,27 @@
+package ru.s408766.shooter.loadtest;
+
+// Что меряем; name - ключ в отчёте, weight - доля в смеси после начальной регистрации
+enum Operation {
+    REQUEST_CODE("request-2fa", 0),
+    SIGN_UP("signup", 2),
+    SIGN_IN("signin", 8),
+    ADD_RESULT("add-result", 70),
+    GET_RESULTS("get-results", 10),
+    SYNC_RESULTS("sync-results", 10);
+
+    private final String reportName;
+    private final int weight;
+
+    Operation(String reportName, int weight) {
+        this.reportName = reportName;
+        this.weight = weight;
+    }
+
+    String reportName() {
+        return reportName;
+    }
+
+    int weight() {
+        return weight;
+    }
+}
@@ -1,9 +1,15 @@
 package ru.s408766.shooter;
 
+import jakarta.enterprise.concurrent.ManagedExecutorDefinition;
+import jakarta.enterprise.concurrent.ManagedThreadFactoryDefinition;
 import jakarta.ws.rs.ApplicationPath;
 import jakarta.ws.rs.core.Application;
 
+// Блокирующие ресурсы (БД, почта) выполняются на виртуальных потоках, чтобы не держать потоки контейнера
 @ApplicationPath("/api")
+@ManagedExecutorDefinition(name = MainApplication.VIRTUAL_EXECUTOR, virtual = true)
+@ManagedThreadFactoryDefinition(name = MainApplication.VIRTUAL_THREAD_FACTORY, virtual = true)
 public class MainApplication extends Application {
-
-}
\ No newline at end of file
+    public static final String VIRTUAL_EXECUTOR = "java:app/concurrent/virtual";
+    public static final String VIRTUAL_THREAD_FACTORY = "java:app/concurrent/virtual-threads";
+}
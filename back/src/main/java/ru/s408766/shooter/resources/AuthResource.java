@@ -1,5 +1,7 @@
 package ru.s408766.shooter.resources;
 
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
@@ -11,13 +13,20 @@ import jakarta.ws.rs.core.Response;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.json.JSONObject;
+import ru.s408766.shooter.MainApplication;
 import ru.s408766.shooter.utils.models.User;
+import ru.s408766.shooter.utils.models.UserCredentials;
 import ru.s408766.shooter.utils.PasswordUtil;
+import ru.s408766.shooter.utils.metrics.RequestTimings;
+import ru.s408766.shooter.utils.ratelimit.RateLimit;
+import ru.s408766.shooter.utils.services.PasswordHashingService;
 import ru.s408766.shooter.utils.services.TokenService;
+import ru.s408766.shooter.utils.services.UserCacheService;
 import ru.s408766.shooter.utils.services.verification.TwoFactorService;
 import ru.s408766.shooter.utils.services.db.UserService;
 
-import java.util.ArrayList;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 @Path("/auth")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -29,6 +38,12 @@ public class AuthResource {
     private TokenService tokenService;
     @Inject
     private TwoFactorService twoFactorService;
+    @Inject
+    private UserCacheService userCacheService;
+    @Inject
+    private PasswordHashingService passwordHashingService;
+    @Resource(lookup = MainApplication.VIRTUAL_EXECUTOR)
+    private ManagedExecutorService executor;
 
 
     @Data
@@ -56,128 +71,173 @@ public class AuthResource {
         private String verificationCode;
     }
 
+    // запросы блокируются на БД, хешировании и почте, поэтому уводим их с потока контейнера на виртуальный
+    private CompletionStage<Response> async(Supplier<Response> action) {
+        return executor.supplyAsync(RequestTimings.propagate(action));
+    }
+
+    private Response codeRequestError(TwoFactorService.CodeRequestStatus status) {
+        switch (status) {
+            case RATE_LIMITED:
+                return Response
+                        .status(Response.Status.TOO_MANY_REQUESTS)
+                        .entity("Verification code was requested too often, try again later")
+                        .build();
+            case UNAVAILABLE:
+                return Response
+                        .status(Response.Status.SERVICE_UNAVAILABLE)
+                        .entity("Verification codes are temporarily unavailable, try again later")
+                        .build();
+            default:
+                return null;
+        }
+    }
+
     // логин? нет > регистрация? да > код? правильный > регистрация > логин
     @POST
     @Path("/signup")
-    public Response signUp(@Valid AuthVerifiedRequest authRequest) {
-        if (userService.findByUsername(authRequest.getEmail()) != null) {
+    @RateLimit(name = "auth-ip", key = RateLimit.Key.IP, perMinute = 60, burst = 20)
+    @RateLimit(name = "verify-email", key = RateLimit.Key.EMAIL, perMinute = 10, burst = 5)
+    public CompletionStage<Response> signUp(@Valid AuthVerifiedRequest authRequest) {
+        return async(() -> {
+            if (userService.existsByEmail(authRequest.getEmail())) {
+                return Response
+                        .status(Response.Status.CONFLICT)
+                        .entity("User with email " + authRequest.getEmail() + " already exists")
+                        .build();
+            }
+            // пользователя не существует > проверим код
+            boolean isCodeValid = twoFactorService.verifyCode(
+                    authRequest.getEmail(),
+                    authRequest.getVerificationCode());
+            if (!isCodeValid) {
+                return Response
+                        .status(Response.Status.UNAUTHORIZED)
+                        .entity("Invalid verification code")
+                        .build();
+            }
+            // код правильный > делаем нового
+            User newUser = new User(authRequest.getEmail(), passwordHashingService.hash(authRequest.getPassword()));
+            if (!userService.saveUserToDb(newUser)) {
+                return Response
+                        .status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Error while creating user")
+                        .build();
+            }
+            // пользователь готов, вернём токен
+            String token = tokenService.generateToken(newUser.getId(), newUser.getEmail());
             return Response
-                    .status(Response.Status.CONFLICT)
-                    .entity("User with email " + authRequest.getEmail() + " already exists")
+                    .status(Response.Status.OK)
+                    .entity("{\"token\":\"" + token + "\"}")
                     .build();
-        }
-        // пользователя не существует > проверим код
-        boolean isCodeValid = twoFactorService.verifyCode(
-                authRequest.getEmail(),
-                authRequest.getVerificationCode());
-        if (!isCodeValid) {
-            return Response
-                    .status(Response.Status.UNAUTHORIZED)
-                    .entity("Invalid verification code")
-                    .build();
-        }
-        // код правильный > делаем нового
-        User newUser = new User();
-        newUser.setEmail(authRequest.getEmail());
-        newUser.setPassword(PasswordUtil.hashPassword(authRequest.getPassword()));
-        newUser.setResults(new ArrayList<>());
-        if (!userService.saveUserToDb(newUser)) {
-            return Response
-                    .status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("Error while creating user")
-                    .build();
-        }
-        // пользователь готов, вернём токен
-        String token = tokenService.generateToken(newUser.getEmail());
-        return Response
-                .status(Response.Status.OK)
-                .entity("{\"token\":\"" + token + "\"}")
-                .build();
+        });
     }
 
     @POST
     @Path("/request-2fa")
-    public Response requestTwoFactorCode(
+    @RateLimit(name = "mail-ip", key = RateLimit.Key.IP, perMinute = 10, burst = 5)
+    @RateLimit(name = "mail-email", key = RateLimit.Key.EMAIL, perMinute = 3, burst = 3)
+    public CompletionStage<Response> requestTwoFactorCode(
             @Valid EmailRequest codeRequest) {
-        String code = twoFactorService.generateAndSendCode(codeRequest.getEmail());
-        return Response
-                .status(Response.Status.OK)
-                .entity("{\"message\": \"Verification code sent\"}")
-                .build();
+        return async(() -> {
+            Response codeError = codeRequestError(twoFactorService.generateAndSendCode(codeRequest.getEmail()));
+            if (codeError != null) return codeError;
+            return Response
+                    .status(Response.Status.OK)
+                    .entity("{\"message\": \"Verification code sent\"}")
+                    .build();
+        });
     }
 
     @POST
     @Path("/signin")
-    public Response signIn(@Valid AuthRequest authRequest) {
-        User existingUser = userService.findByUsername(authRequest.getEmail());
-        if (existingUser == null) {
+    @RateLimit(name = "auth-ip", key = RateLimit.Key.IP, perMinute = 60, burst = 20)
+    @RateLimit(name = "signin-email", key = RateLimit.Key.EMAIL, perMinute = 10, burst = 5)
+    public CompletionStage<Response> signIn(@Valid AuthRequest authRequest) {
+        return async(() -> {
+            UserCredentials existingUser = userCacheService.getUser(authRequest.getEmail(), userService::findCredentials);
+            if (existingUser == null) {
+                return Response
+                        .status(Response.Status.UNAUTHORIZED)
+                        .entity("User not found")
+                        .build();
+            }
+            if (!passwordHashingService.verify(authRequest.getPassword(), existingUser.passwordHash())) {
+                return Response
+                        .status(Response.Status.UNAUTHORIZED)
+                        .entity("Invalid password")
+                        .build();
+            }
+            // пароль верный > если хэш старого формата или дешевле текущего, пересчитаем его
+            if (PasswordUtil.needsRehash(existingUser.passwordHash())) {
+                userService.updatePasswordHash(existingUser.id(), passwordHashingService.hash(authRequest.getPassword()));
+                userCacheService.invalidateUser(existingUser.email());
+            }
+            String token = tokenService.generateToken(existingUser.id(), existingUser.email());
             return Response
-                    .status(Response.Status.UNAUTHORIZED)
-                    .entity("User not found")
+                    .status(Response.Status.OK)
+                    .entity("{\"token\":\"" + token + "\", \"email\":\"" + existingUser.email() + "\"}")
                     .build();
-        }
-        if (!PasswordUtil.verifyPassword(authRequest.getPassword(), existingUser.getPassword())) {
-            return Response
-                    .status(Response.Status.UNAUTHORIZED)
-                    .entity("Invalid password")
-                    .build();
-        }
-        String token = tokenService.generateToken(existingUser.getEmail());
-        return Response
-                .status(Response.Status.OK)
-                .entity("{\"token\":\"" + token + "\", \"email\":\"" + existingUser.getEmail() + "\"}")
-                .build();
+        });
     }
 
     @POST
     @Path("/request-password-reset")
-    public Response requestPasswordReset(@Valid EmailRequest resetRequest) {
-        User existingUser = userService.findByUsername(resetRequest.getEmail());
-        if (existingUser == null) {
+    @RateLimit(name = "mail-ip", key = RateLimit.Key.IP, perMinute = 10, burst = 5)
+    @RateLimit(name = "mail-email", key = RateLimit.Key.EMAIL, perMinute = 3, burst = 3)
+    public CompletionStage<Response> requestPasswordReset(@Valid EmailRequest resetRequest) {
+        return async(() -> {
+            if (!userService.existsByEmail(resetRequest.getEmail())) {
+                return Response
+                        .status(Response.Status.NOT_FOUND)
+                        .entity("User not found")
+                        .build();
+            }
+            Response codeError = codeRequestError(twoFactorService.generateAndSendCode(resetRequest.getEmail()));
+            if (codeError != null) return codeError;
             return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("User not found")
+                    .status(Response.Status.OK)
+                    .entity("{\"message\": \"Password reset verification code sent\"}")
                     .build();
-        }
-        twoFactorService.generateAndSendCode(resetRequest.getEmail());
-        return Response
-                .status(Response.Status.OK)
-                .entity("{\"message\": \"Password reset verification code sent\"}")
-                .build();
+        });
     }
 
     @POST
     @Path("/reset-password")
-    public Response resetPassword(@Valid AuthVerifiedRequest resetRequest) {
-        User existingUser = userService.findByUsername(resetRequest.getEmail());
-        if (existingUser == null) {
+    @RateLimit(name = "auth-ip", key = RateLimit.Key.IP, perMinute = 60, burst = 20)
+    @RateLimit(name = "verify-email", key = RateLimit.Key.EMAIL, perMinute = 10, burst = 5)
+    public CompletionStage<Response> resetPassword(@Valid AuthVerifiedRequest resetRequest) {
+        return async(() -> {
+            UserCredentials existingUser = userService.findCredentials(resetRequest.getEmail());
+            if (existingUser == null) {
+                return Response
+                        .status(Response.Status.NOT_FOUND)
+                        .entity("User not found")
+                        .build();
+            }
+            // пользователь существует, чекаем код
+            boolean isCodeValid = twoFactorService.verifyCode(
+                    resetRequest.getEmail(),
+                    resetRequest.getVerificationCode());
+            if (!isCodeValid) {
+                return Response
+                        .status(Response.Status.UNAUTHORIZED)
+                        .entity("Invalid verification code")
+                        .build();
+            }
+            // всё ок, апдейтим
+            if (!userService.updatePasswordHash(existingUser.id(), passwordHashingService.hash(resetRequest.getPassword()))) {
+                return Response
+                        .status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Error while updating password")
+                        .build();
+            }
+            userCacheService.invalidateUser(existingUser.email());
+            String token = tokenService.generateToken(existingUser.id(), existingUser.email());
             return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("User not found")
+                    .status(Response.Status.OK)
+                    .entity("{\"message\": \"Password reset successful\", \"token\":\"" + token + "\", \"email\":\"" + existingUser.email() + "\"}")
                     .build();
-        }
-        // пользователь существует, чекаем код
-        boolean isCodeValid = twoFactorService.verifyCode(
-                resetRequest.getEmail(),
-                resetRequest.getVerificationCode());
-        if (!isCodeValid) {
-            return Response
-                    .status(Response.Status.UNAUTHORIZED)
-                    .entity("Invalid verification code")
-                    .build();
-        }
-        // всё ок, апдейтим
-        existingUser.setPassword(PasswordUtil.hashPassword(resetRequest.getPassword()));
-        if (!userService.updateUser(existingUser)) {
-            return Response
-                    .status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("Error while updating password")
-                    .build();
-        }
-        String token = tokenService.generateToken(existingUser.getEmail());
-        return Response
-                .status(Response.Status.OK)
-                .entity("{\"message\": \"Password reset successful\", \"token\":\"" + token + "\", \"email\":\"" + existingUser.getEmail() + "\"}")
-                .build();
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package ru.s408766.shooter.resources;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import ru.s408766.shooter.utils.ProjectSettings;
+import ru.s408766.shooter.utils.metrics.MetricsRegistry;
+import ru.s408766.shooter.utils.ratelimit.RateLimiter;
+import ru.s408766.shooter.utils.services.ResultFeedService;
+import ru.s408766.shooter.utils.services.ResultSnapshotService;
+import ru.s408766.shooter.utils.services.UserCacheService;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+// Доступ: с shooter.metrics.token - по "Authorization: Bearer <токен>" (bearer_token в конфиге Prometheus),
+// без него - только с этой же машины и не через прокси
+@Path("/metrics")
+public class MetricsResource {
+    // text exposition format Prometheus
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+    private static final byte[] TOKEN = ProjectSettings.get("shooter.metrics.token", "").getBytes(StandardCharsets.UTF_8);
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+    @Inject
+    private UserCacheService userCacheService;
+    @Inject
+    private ResultFeedService resultFeedService;
+    @Inject
+    private RateLimiter rateLimiter;
+    @Inject
+    private ResultSnapshotService resultSnapshotService;
+    @Context
+    private HttpServletRequest servletRequest;
+
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    public Response getMetrics(@HeaderParam(HttpHeaders.AUTHORIZATION) String authHeader) {
+        Response accessError = checkAccess(authHeader);
+        if (accessError != null) return accessError;
+        StringBuilder out = new StringBuilder(16 * 1024);
+        metricsRegistry.writePrometheus(out);
+
+        Map<String, CacheStats> caches = userCacheService.getStats();
+        caches.put("snapshots", resultSnapshotService.getStats());
+        out.append("# TYPE shooter_cache_hits_total counter\n");
+        caches.forEach((cache, stats) -> appendSample(out, "shooter_cache_hits_total", cache, stats.hitCount()));
+        out.append("# TYPE shooter_cache_misses_total counter\n");
+        caches.forEach((cache, stats) -> appendSample(out, "shooter_cache_misses_total", cache, stats.missCount()));
+        out.append("# TYPE shooter_cache_evictions_total counter\n");
+        caches.forEach((cache, stats) -> appendSample(out, "shooter_cache_evictions_total", cache, stats.evictionCount()));
+
+        out.append("# TYPE shooter_sse_connections gauge\n");
+        out.append("shooter_sse_connections ").append(resultFeedService.getConnectionCount()).append('\n');
+
+        out.append("# TYPE shooter_ratelimit_rejected_total counter\n");
+        for (RateLimiter.Limit limit : rateLimiter.getLimits().values()) {
+            appendLimitSample(out, "shooter_ratelimit_rejected_total", limit, limit.getRejected());
+        }
+        out.append("# TYPE shooter_ratelimit_keys gauge\n");
+        for (RateLimiter.Limit limit : rateLimiter.getLimits().values()) {
+            appendLimitSample(out, "shooter_ratelimit_keys", limit, limit.getTrackedKeys());
+        }
+        return Response
+                .status(Response.Status.OK)
+                .entity(out.toString())
+                .build();
+    }
+
+    private Response checkAccess(String authHeader) {
+        if (TOKEN.length > 0) {
+            byte[] presented = authHeader != null && authHeader.startsWith("Bearer ")
+                    ? authHeader.substring("Bearer ".length()).getBytes(StandardCharsets.UTF_8)
+                    : new byte[0];
+            // сравнение за постоянное время, чтобы токен нельзя было подобрать по задержке
+            if (MessageDigest.isEqual(TOKEN, presented)) return null;
+            return Response
+                    .status(Response.Status.UNAUTHORIZED)
+                    .entity("Invalid metrics token")
+                    .build();
+        }
+        if (isLocalRequest()) return null;
+        return Response
+                .status(Response.Status.FORBIDDEN)
+                .entity("Metrics are only available locally")
+                .build();
+    }
+
+    // запрос с заголовком прокси пришёл снаружи, даже если прокси стоит на этой же машине
+    private boolean isLocalRequest() {
+        if (servletRequest.getHeader("X-Forwarded-For") != null || servletRequest.getHeader("Forwarded") != null) {
+            return false;
+        }
+        try {
+            // getRemoteAddr() - всегда IP-литерал, в DNS не ходит
+            return InetAddress.getByName(servletRequest.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static void appendSample(StringBuilder out, String metric, String cache, long value) {
+        out.append(metric).append("{cache=\"").append(cache).append("\"} ").append(value).append('\n');
+    }
+
+    private static void appendLimitSample(StringBuilder out, String metric, RateLimiter.Limit limit, long value) {
+        out.append(metric).append("{limit=\"").append(limit.getName()).append("\"} ").append(value).append('\n');
+    }
+}
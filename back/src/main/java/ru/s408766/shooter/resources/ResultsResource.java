@@ -1,29 +1,76 @@
 package ru.s408766.shooter.resources;
 
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.Variant;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import lombok.Data;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import ru.s408766.shooter.MainApplication;
+import ru.s408766.shooter.utils.ProjectConstants;
+import ru.s408766.shooter.utils.metrics.RequestTimings;
+import ru.s408766.shooter.utils.ratelimit.RateLimit;
 import ru.s408766.shooter.utils.models.*;
 import ru.s408766.shooter.utils.services.db.ResultService;
+import ru.s408766.shooter.utils.services.db.ResultWriter;
+import ru.s408766.shooter.utils.services.ResultFeedService;
+import ru.s408766.shooter.utils.services.ResultSnapshotService;
+import ru.s408766.shooter.utils.services.ResultTileService;
 import ru.s408766.shooter.utils.services.TokenService;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.InvalidParameterException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 
 @Path("/results")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class ResultsResource {
+    public static final String NEXT_PAGE_HEADER = "X-Next-After";
+    public static final String VERSION_HEADER = "X-Results-Version";
+    public static final String RESET_HEADER = "X-Results-Reset";
+    // при равном q (Accept: */* или без Accept) выбирается первый, то есть JSON
+    private static final List<Variant> RESULT_VARIANTS = Variant
+            .mediaTypes(MediaType.APPLICATION_JSON_TYPE, PackedResultEncoder.MEDIA_TYPE_TYPE)
+            .build();
+
     @Inject
     private ResultService resultService;
     @Inject
+    private ResultWriter resultWriter;
+    @Inject
     private TokenService tokenService;
+    @Inject
+    private ResultTileService resultTileService;
+    @Inject
+    private ResultFeedService resultFeedService;
+    @Inject
+    private ResultSnapshotService resultSnapshotService;
+    @Resource(lookup = MainApplication.VIRTUAL_EXECUTOR)
+    private ManagedExecutorService executor;
 
     @Data
     public static class AddResultRequest {
@@ -35,14 +82,14 @@ public class ResultsResource {
         private Float shapeRadius;
     }
 
-    private Response validateAuth(String authHeader, User[] userHolder) {
+    private Response validateAuth(String authHeader, AuthenticatedUser[] userHolder) {
         if (authHeader == null || !authHeader.startsWith("Bearer "))
             return Response.status(Response.Status.UNAUTHORIZED)
                     .entity("Token not found")
                     .build();
 
         String token = authHeader.substring("Bearer ".length());
-        User user = tokenService.getUserFromToken(token);
+        AuthenticatedUser user = tokenService.authenticate(token);
         if (Objects.isNull(user))
             return Response
                     .status(Response.Status.UNAUTHORIZED)
@@ -67,38 +114,95 @@ public class ResultsResource {
                 .build();
     }
 
-    private Response executeWithAuth(String authHeader, Function<User, Response> operation) {
-        User[] userHolder = new User[1];
+    // токен проверяем на потоке контейнера, а работу с БД уводим на виртуальный поток
+    private CompletionStage<Response> executeWithAuth(String authHeader, Function<AuthenticatedUser, Response> operation) {
+        AuthenticatedUser[] userHolder = new AuthenticatedUser[1];
         Response authError = validateAuth(authHeader, userHolder);
-        if (authError != null) return authError;
-        try {
-            return operation.apply(userHolder[0]);
-        } catch (InvalidParameterException e) {
-            return Response
-                    .status(Response.Status.BAD_REQUEST)
-                    .entity("Invalid parameters")
-                    .build();
-        } catch (Exception e) {
-            return serverErrorResponse("Error processing request: " + e.getMessage());
+        if (authError != null) {
+            // в executor не уходим, но замеры с потока контейнера снимаем так же, как propagate
+            RequestTimings.bind(null);
+            return CompletableFuture.completedFuture(authError);
         }
+        return executor.supplyAsync(RequestTimings.propagate(() -> {
+            try {
+                return operation.apply(userHolder[0]);
+            } catch (InvalidParameterException e) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity("Invalid parameters")
+                        .build();
+            } catch (Exception e) {
+                return serverErrorResponse("Error processing request: " + e.getMessage());
+            }
+        }));
     }
 
     @Path("/add-result")
     @POST
-    public Response addResult(
+    @RateLimit(name = "add-result", key = RateLimit.Key.USER, perMinute = 1200, burst = 100)
+    public CompletionStage<Response> addResult(
             @HeaderParam("Authorization") String authHeader,
             @Valid AddResultRequest addResultRequest) {
 
         return executeWithAuth(authHeader, user -> {
             try {
                 ResultInfo result = ResultInfo.calculate(addResultRequest.getX(), addResultRequest.getY(), addResultRequest.getShapeRadius());
-                user.addResult(result);
+                result.setUser(User.reference(user.id()));
+
+                switch (resultWriter.write(result)) {
+                    case ACCEPTED:
+                        return successResponse(result.toJSONObject());
+                    case OVERLOADED:
+                        return Response
+                                .status(Response.Status.SERVICE_UNAVAILABLE)
+                                .entity("Server is busy, try again later")
+                                .build();
+                    default:
+                        return serverErrorResponse("Error while saving result");
+                }
+            } catch (InvalidParameterException e) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .build();
+            }
+        });
+    }
+
+    @Path("/add-results")
+    @POST
+    @RateLimit(name = "add-results", key = RateLimit.Key.USER, perMinute = 60, burst = 10)
+    public CompletionStage<Response> addResults(
+            @HeaderParam("Authorization") String authHeader,
+            @Valid
+            @NotEmpty(message = "Results batch cannot be empty")
+            @Size(max = ProjectConstants.MAX_RESULTS_BATCH, message = "Results batch is too large")
+            List<AddResultRequest> addResultRequests) {
 
-                if (resultService.saveResultToDb(result)) {
-                    return successResponse(result.toJSONObject());
-                } else {
-                    return serverErrorResponse("Error while saving result");
+        return executeWithAuth(authHeader, user -> {
+            // одна аутентификация и одна транзакция на всю пачку
+            int count = addResultRequests.size();
+            double[] shotsX = new double[count];
+            double[] shotsY = new double[count];
+            double[] shapeRadii = new double[count];
+            for (int i = 0; i < count; i++) {
+                AddResultRequest request = addResultRequests.get(i);
+                shotsX[i] = request.getX();
+                shotsY[i] = request.getY();
+                shapeRadii[i] = request.getShapeRadius();
+            }
+            try {
+                List<ResultInfo> results = ResultInfo.calculateAll(shotsX, shotsY, shapeRadii);
+                User owner = User.reference(user.id());
+                results.forEach(result -> result.setUser(owner));
+
+                if (!resultService.saveResultsToDb(results)) {
+                    return serverErrorResponse("Error while saving results");
                 }
+                List<ResultView> views = new ArrayList<>(count);
+                results.forEach(result -> views.add(result.toView()));
+                return successResponse(new GenericEntity<List<ResultView>>(views) {
+                });
             } catch (InvalidParameterException e) {
                 return Response
                         .status(Response.Status.BAD_REQUEST)
@@ -110,41 +214,271 @@ public class ResultsResource {
 
     @Path("/clear-results")
     @DELETE
-    public Response clearResults(@HeaderParam("Authorization") String authHeader) {
+    @RateLimit(name = "clear-results", key = RateLimit.Key.USER, perMinute = 30, burst = 10)
+    public CompletionStage<Response> clearResults(@HeaderParam("Authorization") String authHeader) {
         return executeWithAuth(authHeader, user -> {
-            resultService.clearResultsForUser(user);
-            user.clearResults();
+            resultService.clearResultsForUser(user.id());
             JSONObject result = new JSONObject();
             result.put("message", "All results cleared successfully");
             return successResponse(result.toString());
         });
     }
 
+    // Accept: application/x-shooter-results - упакованный бинарный формат для графика (см. PackedResultEncoder).
+    // since=<версия из X-Results-Version> - только новые результаты из снимка в памяти; если в ответе
+    // X-Results-Reset: true, это полный список, и клиент заменяет им свой, а не дописывает
     @Path("/get-results")
     @GET
-    public Response getResults(@HeaderParam("Authorization") String authHeader) {
-        return executeWithAuth(authHeader, user ->
-                successResponse(user.getResultsAsJSON())
-        );
+    @Produces({MediaType.APPLICATION_JSON, PackedResultEncoder.MEDIA_TYPE})
+    @RateLimit(name = "read-results", key = RateLimit.Key.USER, perMinute = 300, burst = 60)
+    public CompletionStage<Response> getResults(
+            @HeaderParam("Authorization") String authHeader,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("after") Long after,
+            @QueryParam("since") Long since,
+            @Context Request request) {
+        // выбор по Accept с учётом q; на рабочем потоке контекст запроса уже недоступен
+        Variant variant = request.selectVariant(RESULT_VARIANTS);
+        boolean packed = variant != null && PackedResultEncoder.MEDIA_TYPE_TYPE.equals(variant.getMediaType());
+        return executeWithAuth(authHeader, user -> {
+            if (since != null) {
+                if (limit != null || after != null) {
+                    return Response
+                            .status(Response.Status.BAD_REQUEST)
+                            .entity("since cannot be combined with limit or after")
+                            .build();
+                }
+                ResultSnapshotService.Delta delta = resultSnapshotService.getDelta(user.id(), since);
+                StreamingOutput stream = packed
+                        ? output -> delta.results().writeTo(new PackedResultEncoder(output))
+                        : output -> {
+                            try (JsonGenerator generator = Json.createGenerator(output)) {
+                                delta.results().writeTo(generator);
+                            }
+                        };
+                return Response
+                        .status(Response.Status.OK)
+                        .type(packed ? PackedResultEncoder.MEDIA_TYPE_TYPE : MediaType.APPLICATION_JSON_TYPE)
+                        .header(VERSION_HEADER, delta.version())
+                        .header(RESET_HEADER, delta.reset())
+                        .entity(stream)
+                        .build();
+            }
+            if (limit == null) {
+                // без limit отдаём всё, но потоком прямо из курсора БД
+                StreamingOutput stream = packed
+                        ? output -> {
+                            PackedResultEncoder encoder = new PackedResultEncoder(output);
+                            resultService.streamResultsForUser(user.id(), after, result -> {
+                                try {
+                                    encoder.write(result);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+                            encoder.flush();
+                        }
+                        : output -> {
+                            try (JsonGenerator generator = Json.createGenerator(output)) {
+                                generator.writeStartArray();
+                                resultService.streamResultsForUser(user.id(), after, result -> result.writeTo(generator));
+                                generator.writeEnd();
+                            }
+                        };
+                return Response
+                        .status(Response.Status.OK)
+                        .type(packed ? PackedResultEncoder.MEDIA_TYPE_TYPE : MediaType.APPLICATION_JSON_TYPE)
+                        .entity(stream)
+                        .build();
+            }
+            if (limit < 1 || limit > ProjectConstants.MAX_RESULTS_PAGE) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity("Limit should be between 1 and " + ProjectConstants.MAX_RESULTS_PAGE)
+                        .build();
+            }
+            List<ResultView> page = resultService.getResultsPage(user.id(), after, limit);
+            Response.ResponseBuilder response = Response
+                    .status(Response.Status.OK)
+                    .type(packed ? PackedResultEncoder.MEDIA_TYPE_TYPE : MediaType.APPLICATION_JSON_TYPE)
+                    .entity(new GenericEntity<List<ResultView>>(page) {
+                    });
+            if (page.size() == limit) {
+                response.header(NEXT_PAGE_HEADER, page.get(page.size() - 1).id());
+            }
+            return response.build();
+        });
+    }
+
+    // EventSource в браузере не умеет заголовки, поэтому токен можно передать и параметром ?token=
+    @Path("/stream")
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RateLimit(name = "stream", key = RateLimit.Key.USER, perMinute = 30, burst = 10)
+    public void stream(
+            @HeaderParam("Authorization") String authHeader,
+            @QueryParam("token") String token,
+            @Context SseEventSink sink,
+            @Context Sse sse) {
+        if (authHeader == null && token != null) authHeader = "Bearer " + token;
+        AuthenticatedUser[] userHolder = new AuthenticatedUser[1];
+        Response authError = validateAuth(authHeader, userHolder);
+        if (authError != null) throw new WebApplicationException(authError);
+        resultFeedService.subscribe(userHolder[0].id(), sink, sse);
+    }
+
+    @Path("/recompute")
+    @GET
+    @RateLimit(name = "recompute", key = RateLimit.Key.USER, perMinute = 10, burst = 3)
+    public CompletionStage<Response> recompute(
+            @HeaderParam("Authorization") String authHeader,
+            @QueryParam("r") Double radius) {
+        return executeWithAuth(authHeader, user -> {
+            if (radius != null && !Shape.isAllowedRadius(radius)) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity("Invalid shape radius")
+                        .build();
+            }
+            ShotColumns shots;
+            try {
+                shots = resultService.loadShotColumns(user.id());
+            } catch (SQLException e) {
+                return serverErrorResponse("Error while loading results");
+            }
+            StreamingOutput stream;
+            if (radius != null) {
+                // один радиус: [{x, y, r, isHit}, ...] в порядке выстрелов
+                boolean[] hits = shots.hitAll(radius);
+                stream = output -> {
+                    try (JsonGenerator generator = Json.createGenerator(output)) {
+                        generator.writeStartArray();
+                        for (int i = 0; i < shots.size(); i++) {
+                            generator.writeStartObject()
+                                    .write("x", shots.xs()[i])
+                                    .write("y", shots.ys()[i])
+                                    .write("r", radius)
+                                    .write("isHit", hits[i])
+                                    .writeEnd();
+                        }
+                        generator.writeEnd();
+                    }
+                };
+            } else {
+                // все радиусы: {radii: [...], points: [[x, y, mask], ...]}, бит i маски - попадание при radii[i]
+                boolean[][] hits = shots.hitAllRadii();
+                stream = output -> {
+                    try (JsonGenerator generator = Json.createGenerator(output)) {
+                        generator.writeStartObject().writeStartArray("radii");
+                        for (double r : ProjectConstants.R_VALUES) generator.write(r);
+                        generator.writeEnd().writeStartArray("points");
+                        for (int i = 0; i < shots.size(); i++) {
+                            int mask = 0;
+                            for (int r = 0; r < hits.length; r++) {
+                                if (hits[r][i]) mask |= 1 << r;
+                            }
+                            generator.writeStartArray()
+                                    .write(shots.xs()[i])
+                                    .write(shots.ys()[i])
+                                    .write(mask)
+                                    .writeEnd();
+                        }
+                        generator.writeEnd().writeEnd();
+                    }
+                };
+            }
+            return successResponse(stream);
+        });
+    }
+
+    @Path("/tiles")
+    @GET
+    @RateLimit(name = "read-results", key = RateLimit.Key.USER, perMinute = 300, burst = 60)
+    public CompletionStage<Response> getTiles(
+            @HeaderParam("Authorization") String authHeader,
+            @QueryParam("r") Double radius,
+            @QueryParam("resolution") @DefaultValue("16") int resolution) {
+        return executeWithAuth(authHeader, user -> {
+            if (radius == null || !Shape.isAllowedRadius(radius)) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity("Invalid shape radius")
+                        .build();
+            }
+            if (resolution < 1 || resolution > ResultTileService.BASE_RESOLUTION || Integer.bitCount(resolution) != 1) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity("Resolution should be a power of two up to " + ResultTileService.BASE_RESOLUTION)
+                        .build();
+            }
+            ResultTileService.TileGrid grid = resultTileService.getTiles(user.id(), radius, resolution);
+
+            JSONObject tiles = new JSONObject();
+            tiles.put("r", grid.radius());
+            tiles.put("resolution", grid.resolution());
+            tiles.put("minX", ProjectConstants.MIN_X);
+            tiles.put("maxX", ProjectConstants.MAX_X);
+            tiles.put("minY", ProjectConstants.MIN_Y);
+            tiles.put("maxY", ProjectConstants.MAX_Y);
+            // только непустые ячейки: [cx, cy, hits, misses]
+            JSONArray cells = new JSONArray();
+            for (int cell = 0; cell < grid.totals().length; cell++) {
+                int total = grid.totals()[cell];
+                if (total == 0) continue;
+                cells.put(new JSONArray()
+                        .put(cell % grid.resolution())
+                        .put(cell / grid.resolution())
+                        .put(grid.hits()[cell])
+                        .put(total - grid.hits()[cell]));
+            }
+            tiles.put("cells", cells);
+            return successResponse(tiles.toString());
+        });
     }
 
     @Path("/user-stats")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getUserStats(@HeaderParam("Authorization") String authHeader) {
+    @RateLimit(name = "read-results", key = RateLimit.Key.USER, perMinute = 300, burst = 60)
+    public CompletionStage<Response> getUserStats(
+            @HeaderParam("Authorization") String authHeader,
+            @QueryParam("bucket") @DefaultValue("day") String bucket) {
         return executeWithAuth(authHeader, user -> {
-            String email = user.getEmail();
-            String totalResults = String.valueOf(user.getResults().toArray().length);
-            String hits = String.valueOf(user.getResults().stream().filter(ResultInfo::isResult).count());
-            String misses = String.valueOf(user.getResults().stream().filter(r -> !r.isResult()).count());
+            if (!ResultService.STATS_BUCKETS.contains(bucket)) {
+                return Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity("Bucket should be one of " + ResultService.STATS_BUCKETS)
+                        .build();
+            }
+            ResultStats total = resultService.getStatsForUser(user.id());
 
             JSONObject stats = new JSONObject();
-            stats.put("email", email);
-            stats.put("totalResults", totalResults);
-            stats.put("hits", hits);
-            stats.put("misses", misses);
+            stats.put("email", user.email());
+            stats.put("totalResults", String.valueOf(total.total()));
+            stats.put("hits", String.valueOf(total.hits()));
+            stats.put("misses", String.valueOf(total.misses()));
+            stats.put("averageExecutionTime", total.averageExecutionTime());
+
+            JSONArray byRadius = new JSONArray();
+            resultService.getStatsByRadius(user.id()).forEach((radius, radiusStats) ->
+                    byRadius.put(statsToJSON(radiusStats).put("r", radius)));
+            stats.put("byRadius", byRadius);
+
+            JSONArray timeline = new JSONArray();
+            resultService.getStatsByTime(user.id(), bucket).forEach((start, bucketStats) ->
+                    timeline.put(statsToJSON(bucketStats).put("start", start)));
+            stats.put("timeline", timeline);
 
             return successResponse(stats.toString());
         });
     }
+
+    private JSONObject statsToJSON(ResultStats stats) {
+        JSONObject json = new JSONObject();
+        json.put("total", stats.total());
+        json.put("hits", stats.hits());
+        json.put("hitRate", stats.hitRate());
+        json.put("averageExecutionTime", stats.averageExecutionTime());
+        return json;
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
 import jakarta.ws.rs.ext.Provider;
+import ru.s408766.shooter.resources.ResultsResource;
 
 import java.io.IOException;
 
@@ -17,6 +18,8 @@ public class CorsFilter implements ContainerResponseFilter {
         responseContext.getHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS, HEAD");
         responseContext.getHeaders().add("Access-Control-Allow-Headers",
                 "Origin, Content-Type, Accept, Authorization");
+        responseContext.getHeaders().add("Access-Control-Expose-Headers", String.join(", ",
+                ResultsResource.NEXT_PAGE_HEADER, ResultsResource.VERSION_HEADER, ResultsResource.RESET_HEADER));
         responseContext.getHeaders().add("Access-Control-Max-Age", "3600");
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package ru.s408766.shooter.utils;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import ru.s408766.shooter.utils.metrics.MetricsRegistry;
+import ru.s408766.shooter.utils.metrics.RequestPhase;
+import ru.s408766.shooter.utils.metrics.RequestTimings;
+
+import java.io.IOException;
+
+// Задержка и коды ответов по эндпоинтам; сериализация тела меряется отдельно, она идёт после response-фильтров
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    private static final String TIMINGS_PROPERTY = MetricsFilter.class.getName() + ".timings";
+    private static final String ENDPOINT_PROPERTY = MetricsFilter.class.getName() + ".endpoint";
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        requestContext.setProperty(TIMINGS_PROPERTY, RequestTimings.start());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext,
+                       ContainerResponseContext responseContext) throws IOException {
+        MetricsRegistry.EndpointMetrics endpoint = metricsRegistry.forMethod(resourceInfo.getResourceMethod());
+        endpoint.recordRequest((RequestTimings) requestContext.getProperty(TIMINGS_PROPERTY), responseContext.getStatus());
+        requestContext.setProperty(ENDPOINT_PROPERTY, endpoint);
+        RequestTimings.bind(null);
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            Object endpoint = context.getProperty(ENDPOINT_PROPERTY);
+            if (endpoint != null) {
+                ((MetricsRegistry.EndpointMetrics) endpoint).recordPhase(RequestPhase.SERIALIZATION, System.nanoTime() - start);
+            }
+        }
+    }
+}
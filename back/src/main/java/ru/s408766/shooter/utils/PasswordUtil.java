@@ -1,44 +1,36 @@
 package ru.s408766.shooter.utils;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.util.Base64;
+import ru.s408766.shooter.utils.hashing.PasswordHasher;
+import ru.s408766.shooter.utils.hashing.Pbkdf2PasswordHasher;
+import ru.s408766.shooter.utils.hashing.Sha256PasswordHasher;
 
+import java.util.List;
+
+// Новые пароли хэшируются текущим алгоритмом, старые проверяются тем, которым были сделаны.
+// Это CPU-тяжёлые вызовы: из ресурсов их надо звать через PasswordHashingService.
 public class PasswordUtil {
+    private static final PasswordHasher CURRENT = new Pbkdf2PasswordHasher(
+            ProjectSettings.getInt("shooter.password.pbkdf2-iterations", 310_000));
+    private static final List<PasswordHasher> HASHERS = List.of(CURRENT, new Sha256PasswordHasher());
+
     public static String hashPassword(String passwordToHash) {
-        try {
-            SecureRandom random = new SecureRandom();
-            byte[] salt = new byte[16];
-            random.nextBytes(salt);
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(salt);
-            byte[] hashedPasswordBytes = md.digest(passwordToHash.getBytes(StandardCharsets.UTF_8));
-            String saltBase64 = Base64.getEncoder().encodeToString(salt);
-            String hashBase64 = Base64.getEncoder().encodeToString(hashedPasswordBytes);
-            return saltBase64 + ":" + hashBase64;
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return CURRENT.hash(passwordToHash);
     }
 
     public static boolean verifyPassword(String passwordToCheck, String storedHash) {
-        if (storedHash == null || !storedHash.contains(":")) return false;
-        String[] parts = storedHash.split(":", 2);
-        String saltBase64 = parts[0];
-        String hashBase64 = parts[1];
-        try {
-            byte[] salt = Base64.getDecoder().decode(saltBase64);
-            byte[] storedHashBytes = Base64.getDecoder().decode(hashBase64);
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(salt);
-            byte[] hashedPasswordBytes = md.digest(passwordToCheck.getBytes(StandardCharsets.UTF_8));
-            return MessageDigest.isEqual(hashedPasswordBytes, storedHashBytes);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return false;
+        PasswordHasher hasher = hasherFor(storedHash);
+        return hasher != null && hasher.verify(passwordToCheck, storedHash);
+    }
+
+    public static boolean needsRehash(String storedHash) {
+        PasswordHasher hasher = hasherFor(storedHash);
+        return hasher == null || hasher.needsRehash(storedHash);
+    }
+
+    private static PasswordHasher hasherFor(String storedHash) {
+        for (PasswordHasher hasher : HASHERS) {
+            if (hasher.supports(storedHash)) return hasher;
         }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -6,4 +6,6 @@ public interface ProjectConstants {
     public final static double MIN_Y = -5;
     public final static double MAX_Y = 5;
     public final static double[] R_VALUES = {1, 1.25, 1.5, 1.75, 2, 2.25, 2.5, 2.75, 3, 3.25, 3.5, 3.75, 4};
+    public final static int MAX_RESULTS_BATCH = 10000;
+    public final static int MAX_RESULTS_PAGE = 1000;
 }
@@ -0,0 +1,36 @@
+package ru.s408766.shooter.utils;
+
+import java.util.Locale;
+
+// Настройки времени развёртывания: сначала -Dshooter.x.y, потом переменная окружения SHOOTER_X_Y
+// (точки и дефисы ключа становятся подчёркиваниями: shooter.mail.queue-size -> SHOOTER_MAIL_QUEUE_SIZE)
+public final class ProjectSettings {
+    private ProjectSettings() {
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) value = System.getenv(envName(key));
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    // Locale.ROOT: в турецкой локали "i".toUpperCase() дал бы "İ"
+    static String envName(String key) {
+        return key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_');
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+}
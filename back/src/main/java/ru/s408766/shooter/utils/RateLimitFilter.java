@@ -0,0 +1,128 @@
+package ru.s408766.shooter.utils;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import ru.s408766.shooter.utils.models.AuthenticatedUser;
+import ru.s408766.shooter.utils.ratelimit.ClientAddress;
+import ru.s408766.shooter.utils.ratelimit.RateLimiter;
+import ru.s408766.shooter.utils.services.TokenService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Отбивает запросы сверх @RateLimit метода ответом 429 с Retry-After.
+// Идёт после MetricsFilter, чтобы отказы тоже попадали в метрики
+@Provider
+@Priority(Priorities.USER + 100)
+public class RateLimitFilter implements ContainerRequestFilter {
+    // тело дальше этого не читаем: email в запросах авторизации лежит в маленьком JSON
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final ClientAddress CLIENT_ADDRESS = ClientAddress.fromSettings();
+
+    @Inject
+    private RateLimiter rateLimiter;
+    @Inject
+    private TokenService tokenService;
+    @Context
+    private ResourceInfo resourceInfo;
+    @Context
+    private HttpServletRequest servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        List<RateLimiter.Limit> limits = rateLimiter.forMethod(resourceInfo.getResourceMethod());
+        if (limits.isEmpty()) return;
+        String email = null;
+        boolean emailRead = false;
+        // ключа нет (нет тела, нет токена) - ограничение пропускается, ресурс сам ответит 400/401
+        String[] ids = new String[limits.size()];
+        for (int i = 0; i < ids.length; i++) {
+            switch (limits.get(i).getKey()) {
+                case IP -> ids[i] = clientAddress();
+                case EMAIL -> {
+                    if (!emailRead) {
+                        email = readEmail(requestContext);
+                        emailRead = true;
+                    }
+                    ids[i] = email;
+                }
+                default -> ids[i] = userId(requestContext);
+            }
+        }
+        long waitNanos = RateLimiter.tryAcquireAll(limits, ids);
+        if (waitNanos > 0) {
+            requestContext.abortWith(Response
+                    .status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND)
+                    .entity("Too many requests, try again later")
+                    .build());
+        }
+    }
+
+    private String clientAddress() {
+        String header = CLIENT_ADDRESS.header();
+        return CLIENT_ADDRESS.resolve(servletRequest.getRemoteAddr(),
+                header == null ? null : Collections.list(servletRequest.getHeaders(header)));
+    }
+
+    private String userId(ContainerRequestContext requestContext) {
+        String authHeader = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        String token = authHeader != null && authHeader.startsWith("Bearer ")
+                ? authHeader.substring("Bearer ".length())
+                : requestContext.getUriInfo().getQueryParameters().getFirst("token");
+        if (token == null) return null;
+        // проверенный токен (из кэша): чужой subject подставить нельзя
+        AuthenticatedUser user = tokenService.authenticate(token);
+        return user == null ? null : Long.toString(user.id());
+    }
+
+    // Тело читается один раз и подкладывается обратно для ресурса
+    private String readEmail(ContainerRequestContext requestContext) throws IOException {
+        if (!requestContext.hasEntity()) return null;
+        InputStream entity = requestContext.getEntityStream();
+        byte[] body = entity.readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            requestContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(body), entity));
+            return null;
+        }
+        requestContext.setEntityStream(new ByteArrayInputStream(body));
+        try (JsonParser parser = Json.createParser(new ByteArrayInputStream(body))) {
+            int depth = 0;
+            while (parser.hasNext()) {
+                switch (parser.next()) {
+                    case START_OBJECT, START_ARRAY -> depth++;
+                    case END_OBJECT, END_ARRAY -> depth--;
+                    case KEY_NAME -> {
+                        if (depth == 1 && "email".equals(parser.getString()) && parser.hasNext()
+                                && parser.next() == JsonParser.Event.VALUE_STRING) {
+                            return parser.getString().trim().toLowerCase(Locale.ROOT);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } catch (JsonException e) {
+            // кривое тело - разберётся валидация ресурса
+        }
+        return null;
+    }
+}
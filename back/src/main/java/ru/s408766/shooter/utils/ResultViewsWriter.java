@@ -0,0 +1,48 @@
+package ru.s408766.shooter.utils;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+import ru.s408766.shooter.utils.models.PackedResultEncoder;
+import ru.s408766.shooter.utils.models.ResultView;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+// List<ResultView> (через GenericEntity) пишется прямо в поток ответа: JSON-массив или упакованный формат
+@Provider
+@Produces({MediaType.APPLICATION_JSON, PackedResultEncoder.MEDIA_TYPE})
+public class ResultViewsWriter implements MessageBodyWriter<List<ResultView>> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return List.class.isAssignableFrom(type)
+                && genericType instanceof ParameterizedType parameterized
+                && parameterized.getActualTypeArguments()[0] == ResultView.class;
+    }
+
+    @Override
+    public void writeTo(List<ResultView> results, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        if (mediaType.isCompatible(PackedResultEncoder.MEDIA_TYPE_TYPE)) {
+            PackedResultEncoder encoder = new PackedResultEncoder(entityStream);
+            for (ResultView result : results) encoder.write(result);
+            encoder.flush();
+            return;
+        }
+        // поток ответа закрывает рантайм, генератор только сбрасываем
+        JsonGenerator generator = Json.createGenerator(entityStream);
+        generator.writeStartArray();
+        for (ResultView result : results) result.writeTo(generator);
+        generator.writeEnd();
+        generator.flush();
+    }
+}
@@ -0,0 +1,17 @@
+package ru.s408766.shooter.utils;
+
+import jakarta.ejb.ApplicationException;
+
+// Ограниченный ресурс (пул, очередь) занят; пробрасывается из EJB как есть и превращается в 503
+@ApplicationException
+public class ServerBusyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+
+    public ServerBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
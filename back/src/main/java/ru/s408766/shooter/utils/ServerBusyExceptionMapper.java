@@ -0,0 +1,20 @@
+package ru.s408766.shooter.utils;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+@Provider
+public class ServerBusyExceptionMapper implements ExceptionMapper<ServerBusyException> {
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    @Override
+    public Response toResponse(ServerBusyException exception) {
+        return Response
+                .status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .entity(exception.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package ru.s408766.shooter.utils.events;
+
+import ru.s408766.shooter.utils.models.ResultInfo;
+
+import java.util.List;
+
+// Результаты сохранены в БД (может быть пачка разных пользователей, владелец - result.getUser().getId()).
+// Наблюдатели подписываются с during = TransactionPhase.AFTER_SUCCESS, чтобы видеть только закоммиченное.
+public record ResultsAddedEvent(List<ResultInfo> results) {
+}
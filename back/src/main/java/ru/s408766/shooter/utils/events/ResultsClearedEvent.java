@@ -0,0 +1,4 @@
+package ru.s408766.shooter.utils.events;
+
+public record ResultsClearedEvent(long userId) {
+}
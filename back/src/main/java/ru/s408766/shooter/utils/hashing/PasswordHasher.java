@@ -0,0 +1,13 @@
+package ru.s408766.shooter.utils.hashing;
+
+// Алгоритм хэширования паролей; алгоритм и стоимость записываются в саму строку хэша
+public interface PasswordHasher {
+    boolean supports(String storedHash);
+
+    String hash(String password);
+
+    boolean verify(String password, String storedHash);
+
+    // хэш сделан другим алгоритмом или с меньшей стоимостью, чем текущая
+    boolean needsRehash(String storedHash);
+}
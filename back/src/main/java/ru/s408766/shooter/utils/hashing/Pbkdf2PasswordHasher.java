@@ -0,0 +1,70 @@
+package ru.s408766.shooter.utils.hashing;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Формат: $pbkdf2-sha256$<iterations>$<salt base64>$<hash base64>
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public boolean supports(String storedHash) {
+        return storedHash != null && storedHash.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return PREFIX + iterations
+                + "$" + Base64.getEncoder().encodeToString(salt)
+                + "$" + Base64.getEncoder().encodeToString(derive(password, salt, iterations));
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        String[] parts = parse(storedHash);
+        if (parts == null) return false;
+        byte[] salt = Base64.getDecoder().decode(parts[1]);
+        byte[] expected = Base64.getDecoder().decode(parts[2]);
+        return MessageDigest.isEqual(derive(password, salt, Integer.parseInt(parts[0])), expected);
+    }
+
+    @Override
+    public boolean needsRehash(String storedHash) {
+        String[] parts = parse(storedHash);
+        return parts == null || Integer.parseInt(parts[0]) < iterations;
+    }
+
+    // [iterations, salt, hash] или null, если строка не наша
+    private static String[] parse(String storedHash) {
+        if (!(storedHash != null && storedHash.startsWith(PREFIX))) return null;
+        String[] parts = storedHash.substring(PREFIX.length()).split("\\$");
+        return parts.length == 3 ? parts : null;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.s408766.shooter.utils.hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Старый формат "salt:hash" - один проход SHA-256, остаётся только для проверки существующих паролей
+public class Sha256PasswordHasher implements PasswordHasher {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Override
+    public boolean supports(String storedHash) {
+        return storedHash != null && !storedHash.startsWith("$") && storedHash.contains(":");
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[16];
+        RANDOM.nextBytes(salt);
+        byte[] hashedPasswordBytes = digest(salt, password);
+        String saltBase64 = Base64.getEncoder().encodeToString(salt);
+        String hashBase64 = Base64.getEncoder().encodeToString(hashedPasswordBytes);
+        return saltBase64 + ":" + hashBase64;
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        if (!supports(storedHash)) return false;
+        String[] parts = storedHash.split(":", 2);
+        byte[] salt = Base64.getDecoder().decode(parts[0]);
+        byte[] storedHashBytes = Base64.getDecoder().decode(parts[1]);
+        return MessageDigest.isEqual(digest(salt, password), storedHashBytes);
+    }
+
+    @Override
+    public boolean needsRehash(String storedHash) {
+        return true;
+    }
+
+    private static byte[] digest(byte[] salt, String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(salt);
+            return md.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.s408766.shooter.utils.metrics;
+
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.InvocationContext;
+
+// Вешается через @Interceptors на сервисы БД и засчитывает время вызова в RequestPhase.DB
+public class DbTimingInterceptor {
+    @AroundInvoke
+    public Object time(InvocationContext context) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return context.proceed();
+        } finally {
+            RequestTimings.add(RequestPhase.DB, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.s408766.shooter.utils.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма задержек с бакетами по степеням двойки (как в HdrHistogram без суббакетов):
+// индекс бакета считается одной инструкцией, запись не аллоцирует
+public class LatencyHistogram {
+    // бакет 0: < 2^MIN_SHIFT нс (~1 мкс), бакет i: < 2^(i + MIN_SHIFT) нс, последний - всё, что дольше ~34 с
+    private static final int MIN_SHIFT = 10;
+    private static final int BUCKETS = 26;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int index = 64 - Long.numberOfLeadingZeros(nanos >>> MIN_SHIFT);
+        counts[Math.min(index, BUCKETS)].increment();
+        sumNanos.add(nanos);
+    }
+
+    public void writePrometheus(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i].sum();
+            out.append(name).append("_bucket{").append(prefix)
+                    .append("le=\"").append((double) (1L << (i + MIN_SHIFT)) / 1e9).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        cumulative += counts[BUCKETS].sum();
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ").append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+}
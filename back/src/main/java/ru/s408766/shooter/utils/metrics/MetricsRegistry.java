@@ -0,0 +1,94 @@
+package ru.s408766.shooter.utils.metrics;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.Path;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@ApplicationScoped
+public class MetricsRegistry {
+    private static final int MAX_STATUS = 600;
+
+    public static class EndpointMetrics {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram[] phases = new LatencyHistogram[RequestPhase.values().length];
+        private final AtomicLongArray responsesByStatus = new AtomicLongArray(MAX_STATUS);
+
+        EndpointMetrics(String name) {
+            this.name = name;
+            for (int i = 0; i < phases.length; i++) phases[i] = new LatencyHistogram();
+        }
+
+        public void recordRequest(RequestTimings timings, int status) {
+            if (timings != null) {
+                latency.record(System.nanoTime() - timings.getStartNanos());
+                for (RequestPhase phase : RequestPhase.values()) {
+                    long nanos = timings.getPhaseNanos(phase);
+                    if (nanos > 0) phases[phase.ordinal()].record(nanos);
+                }
+            }
+            if (status > 0 && status < MAX_STATUS) responsesByStatus.incrementAndGet(status);
+        }
+
+        public void recordPhase(RequestPhase phase, long nanos) {
+            phases[phase.ordinal()].record(nanos);
+        }
+
+        private String labels() {
+            return "endpoint=\"" + name + "\"";
+        }
+
+        void writeLatency(StringBuilder out) {
+            latency.writePrometheus(out, "shooter_request_duration_seconds", labels());
+        }
+
+        void writePhases(StringBuilder out) {
+            for (RequestPhase phase : RequestPhase.values()) {
+                phases[phase.ordinal()].writePrometheus(out, "shooter_request_phase_duration_seconds",
+                        labels() + ",phase=\"" + phase.getLabel() + "\"");
+            }
+        }
+
+        void writeResponses(StringBuilder out) {
+            for (int status = 0; status < MAX_STATUS; status++) {
+                long count = responsesByStatus.get(status);
+                if (count > 0) {
+                    out.append("shooter_responses_total{").append(labels())
+                            .append(",status=\"").append(status).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<Method, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final EndpointMetrics unmatched = new EndpointMetrics("unmatched");
+
+    public EndpointMetrics forMethod(Method method) {
+        if (method == null) return unmatched;
+        return endpoints.computeIfAbsent(method, m -> new EndpointMetrics(pathOf(m)));
+    }
+
+    private static String pathOf(Method method) {
+        Path classPath = method.getDeclaringClass().getAnnotation(Path.class);
+        Path methodPath = method.getAnnotation(Path.class);
+        return (classPath == null ? "" : classPath.value()) + (methodPath == null ? "" : methodPath.value());
+    }
+
+    // в формате Prometheus все строки одного семейства должны идти подряд сразу после его # TYPE,
+    // поэтому пишем семейство за семейством по всем эндпоинтам, а не эндпоинт за эндпоинтом
+    public void writePrometheus(StringBuilder out) {
+        List<EndpointMetrics> all = new ArrayList<>(endpoints.values());
+        all.add(unmatched);
+        out.append("# TYPE shooter_request_duration_seconds histogram\n");
+        for (EndpointMetrics endpoint : all) endpoint.writeLatency(out);
+        out.append("# TYPE shooter_request_phase_duration_seconds histogram\n");
+        for (EndpointMetrics endpoint : all) endpoint.writePhases(out);
+        out.append("# TYPE shooter_responses_total counter\n");
+        for (EndpointMetrics endpoint : all) endpoint.writeResponses(out);
+    }
+}
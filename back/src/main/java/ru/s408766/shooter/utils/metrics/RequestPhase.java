@@ -0,0 +1,18 @@
+package ru.s408766.shooter.utils.metrics;
+
+public enum RequestPhase {
+    JWT("jwt"),
+    DB("db"),
+    HASHING("hashing"),
+    SERIALIZATION("serialization");
+
+    private final String label;
+
+    RequestPhase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.s408766.shooter.utils.metrics;
+
+import java.util.function.Supplier;
+
+// Время, потраченное текущим запросом на каждую RequestPhase.
+// Привязано к потоку, который выполняет запрос; вне запроса add() ничего не делает.
+public final class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] phaseNanos = new long[RequestPhase.values().length];
+
+    public static RequestTimings start() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(RequestTimings timings) {
+        if (timings == null) CURRENT.remove();
+        else CURRENT.set(timings);
+    }
+
+    // Переносит замеры текущего запроса на поток, который выполнит action (асинхронные ресурсы).
+    // С потока контейнера замеры снимаются сразу: response-фильтр, который их убирает, может пройти
+    // уже на другом потоке, и иначе они достались бы следующему запросу на этом потоке пула
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        RequestTimings timings = CURRENT.get();
+        CURRENT.remove();
+        return () -> {
+            RequestTimings previous = CURRENT.get();
+            bind(timings);
+            try {
+                return action.get();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    public static void add(RequestPhase phase, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) timings.phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getPhaseNanos(RequestPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+}
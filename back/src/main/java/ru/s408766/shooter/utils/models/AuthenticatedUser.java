@@ -0,0 +1,5 @@
+package ru.s408766.shooter.utils.models;
+
+// Пользователь, как он записан в проверенном JWT: без похода в БД
+public record AuthenticatedUser(long id, String email) {
+}
@@ -0,0 +1,58 @@
+package ru.s408766.shooter.utils.models;
+
+import ru.s408766.shooter.utils.ProjectConstants;
+
+// Заранее посчитанные попадания для точек сетки с шагом 1/SCALE: по битсету на каждый допустимый радиус.
+// Класс загружается при первом обращении, так что таблица строится лениво и только если поиск включён
+final class HitTable {
+    // фронт округляет X и Y до десятых
+    static final int SCALE = 10;
+    static final int OFF_GRID = -1;
+
+    private static final int MIN_COLUMN = (int) Math.round(ProjectConstants.MIN_X * SCALE);
+    private static final int MIN_ROW = (int) Math.round(ProjectConstants.MIN_Y * SCALE);
+    private static final int COLUMNS = (int) Math.round(ProjectConstants.MAX_X * SCALE) - MIN_COLUMN + 1;
+    private static final int ROWS = (int) Math.round(ProjectConstants.MAX_Y * SCALE) - MIN_ROW + 1;
+    // [Shape.radiusIndex][cell >>> 6]
+    private static final long[][] BITS = build();
+
+    private HitTable() {
+    }
+
+    private static long[][] build() {
+        double[] radii = new double[Shape.radiusCount()];
+        for (double radius : ProjectConstants.R_VALUES) radii[Shape.radiusIndex(radius)] = radius;
+        long[][] bits = new long[radii.length][(COLUMNS * ROWS + 63) >>> 6];
+        for (int r = 0; r < radii.length; r++) {
+            for (int row = 0; row < ROWS; row++) {
+                for (int column = 0; column < COLUMNS; column++) {
+                    // те же double, что получаются при разборе "0.3" и т.п.: k / 10.0 округляется к ближайшему
+                    double x = (double) (column + MIN_COLUMN) / SCALE;
+                    double y = (double) (row + MIN_ROW) / SCALE;
+                    if (Shape.contains(x, y, radii[r] / 2, radii[r])) {
+                        int cell = row * COLUMNS + column;
+                        bits[r][cell >>> 6] |= 1L << cell;
+                    }
+                }
+            }
+        }
+        return bits;
+    }
+
+    // номер клетки, если точка ровно на сетке, иначе OFF_GRID (NaN и выход за границы тоже сюда).
+    // Только точное k / 10.0: бит посчитан в этой точке, а на границе фигуры соседний double
+    // (0.3f, расширенное до double, это 0.30000001192...) может дать другой ответ - такие проверяем аналитически
+    static int cell(double x, double y) {
+        long column = Math.round(x * SCALE);
+        long row = Math.round(y * SCALE);
+        if ((double) column / SCALE != x || (double) row / SCALE != y) return OFF_GRID;
+        column -= MIN_COLUMN;
+        row -= MIN_ROW;
+        if (column < 0 || column >= COLUMNS || row < 0 || row >= ROWS) return OFF_GRID;
+        return (int) (row * COLUMNS + column);
+    }
+
+    static boolean hit(int radiusIndex, int cell) {
+        return (BITS[radiusIndex][cell >>> 6] & (1L << cell)) != 0;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.s408766.shooter.utils.models;
+
+import jakarta.ws.rs.core.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Упакованный формат для графика: на выстрел RECORD_BYTES байт little-endian -
+// float32 x, float32 y, float32 r, int32 флаги (бит 0 - попадание).
+// Всё выровнено по 4 байта, клиент читает ответ как Float32Array/Int32Array без разбора
+public final class PackedResultEncoder {
+    public static final String MEDIA_TYPE = "application/x-shooter-results";
+    public static final MediaType MEDIA_TYPE_TYPE = MediaType.valueOf(MEDIA_TYPE);
+    public static final int RECORD_BYTES = 16;
+    private static final int HIT_FLAG = 1;
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * BUFFER_RECORDS).order(ByteOrder.LITTLE_ENDIAN);
+
+    public PackedResultEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    public void write(ResultView result) throws IOException {
+        // координаты приходят как Float, так что float32 их не огрубляет
+        write((float) result.x(), (float) result.y(), (float) result.r(), result.isHit());
+    }
+
+    public void write(float x, float y, float r, boolean hit) throws IOException {
+        if (buffer.remaining() < RECORD_BYTES) flush();
+        buffer.putFloat(x)
+                .putFloat(y)
+                .putFloat(r)
+                .putInt(hit ? HIT_FLAG : 0);
+    }
+
+    public void flush() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
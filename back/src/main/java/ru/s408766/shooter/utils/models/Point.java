@@ -9,6 +9,10 @@ public record Point(double x, double y) {
     public Point(double x, double y) {
         this.x = x;
         this.y = y;
+        checkBounds(x, y);
+    }
+
+    public static void checkBounds(double x, double y) {
         if (Double.isNaN(x) || Double.isNaN(y)) throw new IllegalArgumentException("Some point coordinate is NaN");
         if (!(ProjectConstants.MIN_X <= x && x <= ProjectConstants.MAX_X))
             throw new InvalidParameterException(
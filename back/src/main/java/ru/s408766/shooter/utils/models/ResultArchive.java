@@ -0,0 +1,185 @@
+package ru.s408766.shooter.utils.models;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+// Архив старых результатов пользователя: записи фиксированной длины RECORD_BYTES, little-endian,
+// отсортированы по id - int64 id, float32 x, float32 y, float32 r, int32 флаги (бит 0 - попадание),
+// int64 scriptTime, int64 startTime (epoch millis).
+// Поверх MappedByteBuffer файла: поля читаются абсолютными get прямо из отображения, без копирования записей.
+// Архив не обязательно целиком "раньше" таблицы: с пулом id (allocationSize 50) строка с id меньше
+// последнего в архиве может закоммититься уже после переноса. Поэтому слои сливаются по id (forEachAfter, page).
+public final class ResultArchive {
+    public static final int RECORD_BYTES = 40;
+    public static final ResultArchive EMPTY = new ResultArchive(ByteBuffer.allocate(0));
+    private static final int ID = 0;
+    private static final int X = 8;
+    private static final int Y = 12;
+    private static final int R = 16;
+    private static final int FLAGS = 20;
+    private static final int SCRIPT_TIME = 24;
+    private static final int START_TIME = 32;
+    private static final int HIT_FLAG = 1;
+
+    private final ByteBuffer records;
+    private final int count;
+
+    // хвост короче записи (оборванная дозапись) не читается
+    public ResultArchive(ByteBuffer records) {
+        this.records = records.order(ByteOrder.LITTLE_ENDIAN);
+        this.count = records.capacity() / RECORD_BYTES;
+    }
+
+    public static void encode(ByteBuffer buffer, ResultView result) {
+        buffer.putLong(result.id())
+                .putFloat((float) result.x())
+                .putFloat((float) result.y())
+                .putFloat((float) result.r())
+                .putInt(result.isHit() ? HIT_FLAG : 0)
+                .putLong(result.scriptTime())
+                .putLong(result.startTime().getTime());
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long lastId() {
+        return count == 0 ? 0 : id(count - 1);
+    }
+
+    public long id(int index) {
+        return records.getLong(index * RECORD_BYTES + ID);
+    }
+
+    public float x(int index) {
+        return records.getFloat(index * RECORD_BYTES + X);
+    }
+
+    public float y(int index) {
+        return records.getFloat(index * RECORD_BYTES + Y);
+    }
+
+    public float r(int index) {
+        return records.getFloat(index * RECORD_BYTES + R);
+    }
+
+    public boolean isHit(int index) {
+        return (records.getInt(index * RECORD_BYTES + FLAGS) & HIT_FLAG) != 0;
+    }
+
+    public long scriptTime(int index) {
+        return records.getLong(index * RECORD_BYTES + SCRIPT_TIME);
+    }
+
+    public long startTime(int index) {
+        return records.getLong(index * RECORD_BYTES + START_TIME);
+    }
+
+    public ResultView view(int index) {
+        return new ResultView(id(index), x(index), y(index), r(index), isHit(index),
+                scriptTime(index), new Date(startTime(index)));
+    }
+
+    // индекс первой записи с id > afterId (двоичный поиск, записи упорядочены по id)
+    public int indexAfter(Long afterId) {
+        if (afterId == null) return 0;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (id(middle) <= afterId) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    public boolean contains(long id) {
+        int index = indexAfter(id - 1);
+        return index < count && id(index) == id;
+    }
+
+    // записи [from, to) как есть, для переписывания файла без разбора полей
+    public ByteBuffer records(int from, int to) {
+        return records.slice(from * RECORD_BYTES, (to - from) * RECORD_BYTES);
+    }
+
+    // Архив и строки таблицы (table - по возрастанию id, уже с id > afterId) одним потоком по id.
+    // id, который есть в обоих слоях (перенос оборвался между записью файла и удалением строк), отдаётся один раз
+    public void forEachAfter(Long afterId, Iterator<ResultView> table, Consumer<ResultView> consumer) {
+        int next = indexAfter(afterId);
+        while (table.hasNext()) {
+            ResultView row = table.next();
+            for (; next < count && id(next) <= row.id(); next++) {
+                if (id(next) != row.id()) consumer.accept(view(next));
+            }
+            consumer.accept(row);
+        }
+        for (; next < count; next++) {
+            consumer.accept(view(next));
+        }
+    }
+
+    // первые limit результатов после afterId из архива и table (по возрастанию id, не больше limit строк с id > afterId)
+    public List<ResultView> page(Long afterId, List<ResultView> table, int limit) {
+        List<ResultView> page = new ArrayList<>(Math.min(limit, count + table.size()));
+        int next = indexAfter(afterId);
+        int row = 0;
+        while (page.size() < limit && (next < count || row < table.size())) {
+            if (row == table.size() || next < count && id(next) < table.get(row).id()) {
+                page.add(view(next++));
+            } else {
+                if (next < count && id(next) == table.get(row).id()) next++;
+                page.add(table.get(row++));
+            }
+        }
+        return page;
+    }
+
+    public ResultStats stats() {
+        long hits = 0;
+        long scriptTime = 0;
+        for (int i = 0; i < count; i++) {
+            if (isHit(i)) hits++;
+            scriptTime += scriptTime(i);
+        }
+        return toStats(count, hits, scriptTime);
+    }
+
+    public Map<Double, ResultStats> statsByRadius() {
+        return statsBy(i -> (double) r(i));
+    }
+
+    // bucketOf переводит startTime (epoch millis) в начало корзины
+    public Map<LocalDateTime, ResultStats> statsByTime(LongFunction<LocalDateTime> bucketOf) {
+        return statsBy(i -> bucketOf.apply(startTime(i)));
+    }
+
+    private <K extends Comparable<? super K>> Map<K, ResultStats> statsBy(IntFunction<K> keyOf) {
+        // [всего, попаданий, сумма scriptTime]
+        Map<K, long[]> groups = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            long[] group = groups.computeIfAbsent(keyOf.apply(i), key -> new long[3]);
+            group[0]++;
+            if (isHit(i)) group[1]++;
+            group[2] += scriptTime(i);
+        }
+        Map<K, ResultStats> stats = new TreeMap<>();
+        groups.forEach((key, group) -> stats.put(key, toStats(group[0], group[1], group[2])));
+        return stats;
+    }
+
+    private static ResultStats toStats(long total, long hits, long scriptTime) {
+        return new ResultStats(total, hits, total == 0 ? 0 : (double) scriptTime / total);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.s408766.shooter.utils.models;
+
+import jakarta.json.stream.JsonGenerator;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+// Результаты пользователя по колонкам примитивов, только дописываются в конец.
+// Записанные элементы больше не меняются, а при росте массивы копируются, поэтому Slice,
+// снятый под блокировкой владельца, можно читать после её снятия, пока в буфер пишут дальше.
+public final class ResultColumns {
+    // x, y, r по 4 байта, scriptTime и startTime по 8, попадание - 1
+    public static final int BYTES_PER_RESULT = 29;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final DateTimeFormatter START_TIME_FORMAT = DateTimeFormatter.ISO_INSTANT;
+
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private float[] rs = new float[INITIAL_CAPACITY];
+    private boolean[] hits = new boolean[INITIAL_CAPACITY];
+    private long[] scriptTimes = new long[INITIAL_CAPACITY];
+    // epoch millis
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public record Slice(float[] xs, float[] ys, float[] rs, boolean[] hits,
+                        long[] scriptTimes, long[] startTimes, int from, int to) {
+        public int size() {
+            return to - from;
+        }
+
+        // те же поля, что и ResultView.writeTo
+        public void writeTo(JsonGenerator generator) {
+            generator.writeStartArray();
+            for (int i = from; i < to; i++) {
+                generator.writeStartObject()
+                        .write("x", (double) xs[i])
+                        .write("y", (double) ys[i])
+                        .write("r", (double) rs[i])
+                        .write("isHit", hits[i])
+                        .write("scriptTime", scriptTimes[i])
+                        .write("startTime", START_TIME_FORMAT.format(Instant.ofEpochMilli(startTimes[i])))
+                        .writeEnd();
+            }
+            generator.writeEnd();
+        }
+
+        public void writeTo(PackedResultEncoder encoder) throws IOException {
+            for (int i = from; i < to; i++) {
+                encoder.write(xs[i], ys[i], rs[i], hits[i]);
+            }
+            encoder.flush();
+        }
+    }
+
+    public void append(double x, double y, double r, boolean hit, long scriptTime, long startTime) {
+        if (size == xs.length) grow();
+        xs[size] = (float) x;
+        ys[size] = (float) y;
+        rs[size] = (float) r;
+        hits[size] = hit;
+        scriptTimes[size] = scriptTime;
+        startTimes[size] = startTime;
+        size++;
+    }
+
+    public void append(ResultView result) {
+        append(result.x(), result.y(), result.r(), result.isHit(), result.scriptTime(), result.startTime().getTime());
+    }
+
+    public void append(ResultInfo result) {
+        append(result.getShotX(), result.getShotY(), result.getShapeRadius(), result.isResult(),
+                result.getExecutionTime(), result.getTimestamp().getTime());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long capacityBytes() {
+        return (long) xs.length * BYTES_PER_RESULT;
+    }
+
+    public Slice slice(int from) {
+        return new Slice(xs, ys, rs, hits, scriptTimes, startTimes, from, size);
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        rs = Arrays.copyOf(rs, capacity);
+        hits = Arrays.copyOf(hits, capacity);
+        scriptTimes = Arrays.copyOf(scriptTimes, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+    }
+}
@@ -1,20 +1,25 @@
 package ru.s408766.shooter.utils.models;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @Entity
 @Table(name = "resultInfos")
-@Data
+@Getter
+@Setter
 @NoArgsConstructor
 public class ResultInfo {
+    // id берутся из последовательности пачками по 50 (INCREMENT BY 50 в V3), поэтому вставки идут JDBC-пачками
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "resultInfos_id_seq")
+    @SequenceGenerator(name = "resultInfos_id_seq", sequenceName = "resultInfos_id_seq", allocationSize = 50)
     private Long id;
     @Column(nullable = false)
     private double shotX;
@@ -28,7 +33,8 @@ public class ResultInfo {
     private Date timestamp;
     @Column(nullable = false)
     private long executionTime;
-    @ManyToOne
+    // ленивая ссылка: getUser().getId() берётся из прокси без запроса к users
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -43,19 +49,36 @@ public class ResultInfo {
 
     public static ResultInfo calculate(double shotX, double shotY, double shapeRadius) {
         long startTime = System.nanoTime();
+        Point.checkBounds(shotX, shotY);
+        boolean result = Shape.hit(shotX, shotY, shapeRadius);
+        long executionTime = System.nanoTime() - startTime;
+        return new ResultInfo(shotX, shotY, shapeRadius, result, new Date(), executionTime);
+    }
+
+    public static List<ResultInfo> calculateAll(double[] shotsX, double[] shotsY, double[] shapeRadii) {
+        int count = shotsX.length;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Point.checkBounds(shotsX[i], shotsY[i]);
+        }
+        boolean[] results = new boolean[count];
+        Shape.hit(shotsX, shotsY, shapeRadii, results);
+        // время считается на всю пачку, каждому выстрелу достаётся его доля
+        long executionTime = count == 0 ? 0 : (System.nanoTime() - startTime) / count;
         Date timestamp = new Date();
-        boolean result = new Shape(shapeRadius).containsPoint(new Point(shotX, shotY));
-        return new ResultInfo(shotX, shotY, shapeRadius, result, timestamp, System.nanoTime() - startTime);
+        List<ResultInfo> calculated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            calculated.add(new ResultInfo(shotsX[i], shotsY[i], shapeRadii[i], results[i], timestamp, executionTime));
+        }
+        return calculated;
+    }
+
+    public ResultView toView() {
+        return new ResultView(id == null ? 0 : id, shotX, shotY, shapeRadius, result, executionTime, timestamp);
     }
 
+    // формат JSON один на все ответы - он задаётся в ResultView
     public JsonObject toJSONObject() {
-        return Json.createObjectBuilder()
-                .add("x", shotX)
-                .add("y", shotY)
-                .add("r", shapeRadius)
-                .add("isHit", result)
-                .add("scriptTime", executionTime)
-                .add("startTime", timestamp.toString())
-                .build();
+        return toView().toJSONObject();
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package ru.s408766.shooter.utils.models;
+
+public record ResultStats(long total, long hits, double averageExecutionTime) {
+    public static ResultStats fromRow(Object[] row, int offset) {
+        return new ResultStats(
+                row[offset] == null ? 0 : ((Number) row[offset]).longValue(),
+                row[offset + 1] == null ? 0 : ((Number) row[offset + 1]).longValue(),
+                row[offset + 2] == null ? 0 : ((Number) row[offset + 2]).doubleValue());
+    }
+
+    // сумма двух непересекающихся выборок (например, таблицы и архива)
+    public ResultStats plus(ResultStats other) {
+        long combined = total + other.total;
+        if (combined == 0) return this;
+        return new ResultStats(combined, hits + other.hits,
+                (averageExecutionTime * total + other.averageExecutionTime * other.total) / combined);
+    }
+
+    public long misses() {
+        return total - hits;
+    }
+
+    public double hitRate() {
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
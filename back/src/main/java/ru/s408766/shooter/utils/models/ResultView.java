@@ -0,0 +1,41 @@
+package ru.s408766.shooter.utils.models;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.stream.JsonGenerator;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+// Результат для чтения: строится конструктором прямо в JPQL (SELECT new ...), без управляемой сущности и ссылки на User
+public record ResultView(long id, double x, double y, double r, boolean isHit, long scriptTime, Date startTime) {
+    // ISO-8601 в UTC; форматтер неизменяемый и общий для всех потоков
+    private static final DateTimeFormatter START_TIME_FORMAT = DateTimeFormatter.ISO_INSTANT;
+
+    public String formattedStartTime() {
+        return START_TIME_FORMAT.format(startTime.toInstant());
+    }
+
+    public JsonObject toJSONObject() {
+        return Json.createObjectBuilder()
+                .add("x", x)
+                .add("y", y)
+                .add("r", r)
+                .add("isHit", isHit)
+                .add("scriptTime", scriptTime)
+                .add("startTime", formattedStartTime())
+                .build();
+    }
+
+    // пишет объект сразу в поток, без промежуточного JsonObject
+    public void writeTo(JsonGenerator generator) {
+        generator.writeStartObject()
+                .write("x", x)
+                .write("y", y)
+                .write("r", r)
+                .write("isHit", isHit)
+                .write("scriptTime", scriptTime)
+                .write("startTime", formattedStartTime())
+                .writeEnd();
+    }
+}
@@ -1,34 +1,115 @@
 package ru.s408766.shooter.utils.models;
 
 import ru.s408766.shooter.utils.ProjectConstants;
+import ru.s408766.shooter.utils.ProjectSettings;
 
 import java.security.InvalidParameterException;
 import java.util.Arrays;
+import java.util.Objects;
 
 public class Shape {
+    // отсортированная копия R_VALUES: проверка радиуса бинарным поиском, без стримов и аллокаций
+    private static final double[] SORTED_R_VALUES = sortedRValues();
+    // точки на сетке фронта проверяются одним битом из HitTable, остальные - аналитически
+    private static final boolean LOOKUP_ENABLED = ProjectSettings.getBoolean("shooter.shape.lookup", false);
     private final double radius;
+    private final int radiusIndex;
 
     public Shape(double radius) throws InvalidParameterException {
-        if (Arrays.stream(ProjectConstants.R_VALUES).noneMatch(allowedR -> allowedR == radius)) {
+        checkRadius(radius);
+        this.radius = radius;
+        this.radiusIndex = radiusIndex(radius);
+    }
+
+    private static double[] sortedRValues() {
+        double[] values = ProjectConstants.R_VALUES.clone();
+        Arrays.sort(values);
+        return values;
+    }
+
+    public static boolean isAllowedRadius(double radius) {
+        return Arrays.binarySearch(SORTED_R_VALUES, radius) >= 0;
+    }
+
+    // номер радиуса среди допустимых (по возрастанию) или -1
+    public static int radiusIndex(double radius) {
+        int index = Arrays.binarySearch(SORTED_R_VALUES, radius);
+        return index >= 0 ? index : -1;
+    }
+
+    public static int radiusCount() {
+        return SORTED_R_VALUES.length;
+    }
+
+    public static void checkRadius(double radius) throws InvalidParameterException {
+        if (!isAllowedRadius(radius)) {
             throw new InvalidParameterException(String.format("Invalid shape radius, only values from %s are allowed", Arrays.toString(ProjectConstants.R_VALUES)));
         }
-        this.radius = radius;
     }
 
     public boolean containsPoint(Point point) {
-        if (point.x() <= 0 && point.y() > 0) {
-            // Top left sector
-            return point.y() <= Math.sqrt(Math.pow(radius / 2, 2) - Math.pow(point.x(), 2));
-        } else if (point.x() <= 0 && point.y() <= 0) {
-            // Bottom left sector
-            return point.x() >= -radius / 2 && point.y() >= -radius;
-        } else if (point.x() > 0 && point.y() <= 0) {
-            // Bottom right sector
-            return point.y() >= point.x() - radius / 2;
-        } else {
-            // Top right sector
-            return false;
+        return evaluate(point.x(), point.y(), radius, radiusIndex);
+    }
+
+    public static boolean hit(double x, double y, double radius) throws InvalidParameterException {
+        int index = radiusIndex(radius);
+        if (index < 0) checkRadius(radius);
+        return evaluate(x, y, radius, index);
+    }
+
+    private static boolean evaluate(double x, double y, double radius, int radiusIndex) {
+        if (LOOKUP_ENABLED) {
+            int cell = HitTable.cell(x, y);
+            if (cell != HitTable.OFF_GRID) return HitTable.hit(radiusIndex, cell);
+        }
+        return contains(x, y, radius / 2, radius);
+    }
+
+    // Радиус один на всю пачку; цикл без ветвлений, JIT может его векторизовать
+    public static void hit(double[] xs, double[] ys, double radius, boolean[] out) throws InvalidParameterException {
+        checkLengths(out.length, xs, ys);
+        hit(xs, ys, 0, out.length, radius, out);
+    }
+
+    // то же на отрезке [from, to) - чтобы делить работу между потоками
+    public static void hit(double[] xs, double[] ys, int from, int to, double radius, boolean[] out) throws InvalidParameterException {
+        Objects.checkFromToIndex(from, to, xs.length);
+        Objects.checkFromToIndex(from, to, ys.length);
+        Objects.checkFromToIndex(from, to, out.length);
+        checkRadius(radius);
+        double halfRadius = radius / 2;
+        for (int i = from; i < to; i++) {
+            out[i] = contains(xs[i], ys[i], halfRadius, radius);
         }
     }
 
+    public static void hit(double[] xs, double[] ys, double[] radii, boolean[] out) throws InvalidParameterException {
+        checkLengths(out.length, xs, ys, radii);
+        for (double radius : radii) checkRadius(radius);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = contains(xs[i], ys[i], radii[i] / 2, radii[i]);
+        }
+    }
+
+    // колонки одной пачки обязаны быть одной длины, иначе хвост молча не посчитается или вылетит посреди цикла
+    private static void checkLengths(int length, double[]... columns) {
+        for (double[] column : columns) {
+            if (column.length != length) {
+                throw new IllegalArgumentException("Column length " + column.length + " does not match " + length);
+            }
+        }
+    }
+
+    static boolean contains(double x, double y, double halfRadius, double radius) {
+        boolean left = x <= 0;
+        boolean top = y > 0;
+        // Top left sector: четверть круга радиуса R/2, сравниваем квадраты расстояний
+        boolean inCircle = x * x + y * y <= halfRadius * halfRadius;
+        // Bottom left sector: прямоугольник R/2 x R
+        boolean inRectangle = x >= -halfRadius & y >= -radius;
+        // Bottom right sector: треугольник под прямой y = x - R/2
+        boolean inTriangle = y >= x - halfRadius;
+        // Top right sector пустой
+        return (left & top & inCircle) | (left & !top & inRectangle) | (!left & !top & inTriangle);
+    }
 }
@@ -0,0 +1,37 @@
+package ru.s408766.shooter.utils.models;
+
+import ru.s408766.shooter.utils.ProjectConstants;
+
+import java.util.stream.IntStream;
+
+// Координаты выстрелов столбцами: первые size элементов xs/ys, без объекта на каждую точку
+public record ShotColumns(double[] xs, double[] ys, int size) {
+    // кусок работы для одной задачи fork-join
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    public boolean[] hitAll(double radius) {
+        Shape.checkRadius(radius);
+        boolean[] out = new boolean[size];
+        int chunks = chunkCount();
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+                Shape.hit(xs, ys, chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE), radius, out));
+        return out;
+    }
+
+    // [индекс радиуса в R_VALUES][точка]; задачи - все пары (радиус, кусок)
+    public boolean[][] hitAllRadii() {
+        double[] radii = ProjectConstants.R_VALUES;
+        boolean[][] out = new boolean[radii.length][size];
+        int chunks = chunkCount();
+        IntStream.range(0, radii.length * chunks).parallel().forEach(task -> {
+            int radius = task / chunks;
+            int chunk = task % chunks;
+            Shape.hit(xs, ys, chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE), radii[radius], out[radius]);
+        });
+        return out;
+    }
+
+    private int chunkCount() {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+}
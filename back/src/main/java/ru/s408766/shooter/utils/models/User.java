@@ -1,26 +1,31 @@
 package ru.s408766.shooter.utils.models;
 
-import jakarta.json.Json;
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.io.Serializable;
 import java.util.List;
 
-@Data
+// Без @Data: equals/hashCode/toString по всем полям трогали бы ленивую коллекцию results
+@Getter
+@Setter
 @Entity
+@Cacheable
 @Table(name = "users")
 @NoArgsConstructor
 public class User implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
     @Column(name = "email", unique = true, nullable = false)
     private String email;
     @Column(name = "password", nullable = false)
     private String password;
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+    // только для навигации в запросах: результаты пишутся и удаляются через ResultService, коллекция не грузится
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<ResultInfo> results;
 
     public User(String email, String password) {
@@ -28,20 +33,10 @@ public class User implements Serializable {
         this.password = password;
     }
 
-    public void addResult(ResultInfo result) {
-        results.add(result);
-        result.setUser(this);
-    }
-
-    public String getResultsAsJSON() {
-        return Json.createArrayBuilder(
-                results.stream()
-                        .map(ResultInfo::toJSONObject)
-                        .toList()
-        ).build().toString();
-    }
-
-    public void clearResults() {
-        results.clear();
+    // ссылка на уже существующего пользователя: для внешнего ключа нужен только id
+    public static User reference(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
     }
 }
\ No newline at end of file
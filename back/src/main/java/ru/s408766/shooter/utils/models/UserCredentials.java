@@ -0,0 +1,5 @@
+package ru.s408766.shooter.utils.models;
+
+// Всё, что нужно для входа: без сущности User, её контекста и коллекции результатов
+public record UserCredentials(long id, String email, String passwordHash) {
+}
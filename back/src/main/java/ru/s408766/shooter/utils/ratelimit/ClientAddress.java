@@ -0,0 +1,165 @@
+package ru.s408766.shooter.utils.ratelimit;
+
+import ru.s408766.shooter.utils.ProjectSettings;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Адрес клиента для ключа IP. За обратным прокси getRemoteAddr() - адрес самого прокси,
+// и без заголовка все клиенты попали бы в одну корзину.
+// shooter.ratelimit.client-address: remote (по умолчанию) | x-forwarded-for | forwarded (RFC 7239).
+// Заголовку верим, только если запрос пришёл от прокси из shooter.ratelimit.trusted-proxies
+// (адреса или подсети CIDR через запятую; пусто - доверяем непосредственному собеседнику, один прокси перед нами).
+// Клиент - самый правый адрес цепочки, не являющийся доверенным прокси: всё левее клиент может дописать сам
+public final class ClientAddress {
+    public enum Source {
+        REMOTE,
+        X_FORWARDED_FOR,
+        FORWARDED
+    }
+
+    private record Subnet(byte[] address, int prefix) {
+        boolean contains(byte[] other) {
+            if (other.length != address.length) return false;
+            int bytes = prefix / 8;
+            for (int i = 0; i < bytes; i++) {
+                if (address[i] != other[i]) return false;
+            }
+            int bits = prefix % 8;
+            if (bits == 0) return true;
+            int mask = 0xFF << (8 - bits);
+            return (address[bytes] & mask) == (other[bytes] & mask);
+        }
+    }
+
+    private final Source source;
+    private final List<Subnet> trustedProxies;
+
+    public ClientAddress(Source source, List<String> trustedProxies) {
+        this.source = source;
+        this.trustedProxies = trustedProxies.stream().map(ClientAddress::subnet).toList();
+    }
+
+    public static ClientAddress fromSettings() {
+        Source source = Source.valueOf(ProjectSettings.get("shooter.ratelimit.client-address", "remote")
+                .trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        List<String> proxies = Arrays.stream(ProjectSettings.get("shooter.ratelimit.trusted-proxies", "").split(","))
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .toList();
+        return new ClientAddress(source, proxies);
+    }
+
+    // null - заголовок не нужен, хватает getRemoteAddr()
+    public String header() {
+        return switch (source) {
+            case REMOTE -> null;
+            case X_FORWARDED_FOR -> "X-Forwarded-For";
+            case FORWARDED -> "Forwarded";
+        };
+    }
+
+    // headerValues - все строки заголовка header() в порядке прихода (может быть null)
+    public String resolve(String remoteAddr, List<String> headerValues) {
+        if (source == Source.REMOTE || headerValues == null || headerValues.isEmpty()) return remoteAddr;
+        if (!trustedProxies.isEmpty() && !isTrustedProxy(remoteAddr)) return remoteAddr;
+        List<String> chain = new ArrayList<>();
+        for (String value : headerValues) {
+            if (source == Source.FORWARDED) parseForwarded(value, chain);
+            else parseForwardedFor(value, chain);
+        }
+        if (chain.isEmpty()) return remoteAddr;
+        for (int i = chain.size() - 1; i > 0; i--) {
+            if (!isTrustedProxy(chain.get(i))) return chain.get(i);
+        }
+        return chain.get(0);
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) return false;
+        byte[] bytes = literal(address);
+        if (bytes == null) return false;
+        for (Subnet subnet : trustedProxies) {
+            if (subnet.contains(bytes)) return true;
+        }
+        return false;
+    }
+
+    private static void parseForwardedFor(String value, List<String> chain) {
+        for (String part : value.split(",")) {
+            String address = node(part.trim());
+            if (!address.isEmpty()) chain.add(address);
+        }
+    }
+
+    // Forwarded: for=192.0.2.60;proto=http, for="[2001:db8::1]:4711"
+    private static void parseForwarded(String value, List<String> chain) {
+        for (String element : value.split(",")) {
+            for (String pair : element.split(";")) {
+                int eq = pair.indexOf('=');
+                if (eq < 0 || !pair.substring(0, eq).trim().equalsIgnoreCase("for")) continue;
+                String address = node(pair.substring(eq + 1).trim());
+                if (!address.isEmpty()) chain.add(address);
+            }
+        }
+    }
+
+    // адрес без кавычек, скобок IPv6 и порта
+    private static String node(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        if (value.startsWith("[")) {
+            int end = value.indexOf(']');
+            return end < 0 ? value : value.substring(1, end);
+        }
+        int colon = value.indexOf(':');
+        // ровно одно двоеточие - IPv4 с портом, больше - голый IPv6
+        return colon >= 0 && colon == value.lastIndexOf(':') ? value.substring(0, colon) : value;
+    }
+
+    private static Subnet subnet(String proxy) {
+        int slash = proxy.indexOf('/');
+        byte[] address = literal(slash < 0 ? proxy : proxy.substring(0, slash));
+        if (address == null) {
+            throw new IllegalArgumentException("shooter.ratelimit.trusted-proxies: not an IP address: " + proxy);
+        }
+        int prefix = slash < 0 ? address.length * 8 : Integer.parseInt(proxy.substring(slash + 1).trim());
+        if (prefix < 0 || prefix > address.length * 8) {
+            throw new IllegalArgumentException("shooter.ratelimit.trusted-proxies: bad prefix: " + proxy);
+        }
+        return new Subnet(address, prefix);
+    }
+
+    // только IP-литералы: значение заголовка задаёт клиент, и InetAddress не должен уходить с ним в DNS
+    private static byte[] literal(String address) {
+        if (address.indexOf(':') >= 0) {
+            // строку с двоеточием InetAddress разбирает только как литерал IPv6, в DNS не ходит
+            try {
+                return InetAddress.getByName(address).getAddress();
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+        String[] parts = address.split("\\.", -1);
+        if (parts.length != 4) return null;
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3) return null;
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                int digit = Character.digit(part.charAt(j), 10);
+                if (digit < 0) return null;
+                value = value * 10 + digit;
+            }
+            if (value > 255) return null;
+            bytes[i] = (byte) value;
+        }
+        return bytes;
+    }
+}
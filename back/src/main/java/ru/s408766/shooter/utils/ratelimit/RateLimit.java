@@ -0,0 +1,37 @@
+package ru.s408766.shooter.utils.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Ограничение частоты на метод ресурса. Методы с одинаковым name делят корзины.
+// perMinute и burst переопределяются настройками shooter.ratelimit.<name>.per-minute / .burst
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Repeatable(RateLimit.List.class)
+public @interface RateLimit {
+    enum Key {
+        // адрес клиента
+        IP,
+        // поле email из JSON тела запроса
+        EMAIL,
+        // id пользователя из проверенного JWT
+        USER
+    }
+
+    String name();
+
+    Key key();
+
+    long perMinute();
+
+    long burst();
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface List {
+        RateLimit[] value();
+    }
+}
@@ -0,0 +1,157 @@
+package ru.s408766.shooter.utils.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.enterprise.context.ApplicationScoped;
+import ru.s408766.shooter.utils.ProjectSettings;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Корзины токенов по ключам (IP / email / пользователь) для методов с @RateLimit
+@ApplicationScoped
+public class RateLimiter {
+    private static final boolean ENABLED = ProjectSettings.getBoolean("shooter.ratelimit.enabled", true);
+    private static final long MAX_KEYS = ProjectSettings.getLong("shooter.ratelimit.max-keys", 100_000);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    // Корзина без блокировок: в AtomicLong лежит "теоретическое время прихода" (GCRA) - момент,
+    // когда корзина снова станет полной. Запрос сдвигает его на interval, если оно не дальше burst * interval от now.
+    // Это тот же token bucket, но состояние - одно число, и обновляется оно одним CAS
+    public static final class Limit {
+        private final String name;
+        private final RateLimit.Key key;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+        private final LongAdder rejected = new LongAdder();
+        private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+
+        Limit(String name, RateLimit.Key key, long perMinute, long burst) {
+            this.name = name;
+            this.key = key;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.burstNanos = burst * intervalNanos;
+            // Только ограничение по размеру: expireAfterAccess на каждом чтении стоил втрое больше самой проверки.
+            // Простаивающие корзины убирает evictIdle
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(MAX_KEYS)
+                    .build();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public RateLimit.Key getKey() {
+            return key;
+        }
+
+        // 0 - запрос можно выполнять, иначе через сколько наносекунд появится токен
+        public long tryAcquire(String id) {
+            long now = System.nanoTime();
+            long sweepAt = nextSweep.get();
+            if (now - sweepAt > 0 && nextSweep.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+                ForkJoinPool.commonPool().execute(this::evictIdle);
+            }
+            AtomicLong arrival = buckets.getIfPresent(id);
+            if (arrival == null) arrival = buckets.get(id, k -> new AtomicLong(now));
+            while (true) {
+                long current = arrival.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    rejected.increment();
+                    return wait;
+                }
+                if (arrival.compareAndSet(current, next)) return 0;
+            }
+        }
+
+        // как tryAcquire, но ничего не тратит
+        long check(String id) {
+            AtomicLong arrival = buckets.getIfPresent(id);
+            if (arrival == null) return 0;
+            long now = System.nanoTime();
+            return Math.max(0, Math.max(arrival.get(), now) + intervalNanos - now - burstNanos);
+        }
+
+        // возвращает токен, взятый tryAcquire: запрос всё же отбило другое ограничение
+        void release(String id) {
+            AtomicLong arrival = buckets.getIfPresent(id);
+            if (arrival != null) arrival.addAndGet(-intervalNanos);
+        }
+
+        // Корзина, чьё время прихода уже в прошлом, полна: удалить её - то же, что оставить
+        private void evictIdle() {
+            long now = System.nanoTime();
+            buckets.asMap().values().removeIf(arrival -> arrival.get() - now <= 0);
+        }
+
+        public long getTrackedKeys() {
+            return buckets.estimatedSize();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+    }
+
+    private final Map<String, Limit> limitsByName = new ConcurrentHashMap<>();
+    private final Map<Method, List<Limit>> limitsByMethod = new ConcurrentHashMap<>();
+
+    public List<Limit> forMethod(Method method) {
+        if (!ENABLED || method == null) return List.of();
+        return limitsByMethod.computeIfAbsent(method, this::resolve);
+    }
+
+    // Все ограничения метода разом: сначала проверяются все, и запрос, отбитый одним из них,
+    // не тратит токены остальных (иначе перебор email за одним IP съедал бы и корзину auth-ip).
+    // Если между проверкой и взятием токен увёл параллельный запрос, взятое до отказа возвращается.
+    // ids[i] - ключ для limits.get(i), null - ограничение не применяется.
+    // 0 - запрос можно выполнять, иначе через сколько наносекунд появятся токены во всех корзинах
+    public static long tryAcquireAll(List<Limit> limits, String[] ids) {
+        long waitNanos = 0;
+        for (int i = 0; i < limits.size(); i++) {
+            if (ids[i] == null) continue;
+            long wait = limits.get(i).check(ids[i]);
+            if (wait > 0) {
+                limits.get(i).rejected.increment();
+                waitNanos = Math.max(waitNanos, wait);
+            }
+        }
+        if (waitNanos > 0) return waitNanos;
+        for (int i = 0; i < limits.size(); i++) {
+            if (ids[i] == null) continue;
+            long wait = limits.get(i).tryAcquire(ids[i]);
+            if (wait > 0) {
+                for (int j = 0; j < i; j++) {
+                    if (ids[j] != null) limits.get(j).release(ids[j]);
+                }
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    public Map<String, Limit> getLimits() {
+        return limitsByName;
+    }
+
+    private List<Limit> resolve(Method method) {
+        return Arrays.stream(method.getAnnotationsByType(RateLimit.class))
+                .map(annotation -> limitsByName.computeIfAbsent(annotation.name(), name -> new Limit(
+                        name,
+                        annotation.key(),
+                        ProjectSettings.getLong("shooter.ratelimit." + name + ".per-minute", annotation.perMinute()),
+                        ProjectSettings.getLong("shooter.ratelimit." + name + ".burst", annotation.burst()))))
+                .toList();
+    }
+}
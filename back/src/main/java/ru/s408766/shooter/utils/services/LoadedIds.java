@@ -0,0 +1,26 @@
+package ru.s408766.shooter.utils.services;
+
+import java.util.Arrays;
+
+// id строк, прочитанных при построении кэша пользователя из БД. Нужен, пока разбираются события,
+// пришедшие во время загрузки: из-за пула id (allocationSize 50) и коммитов не по порядку
+// по одному max(id) нельзя понять, видел ли запрос строку события, поэтому проверяем сам id.
+final class LoadedIds {
+    private long[] ids = new long[64];
+    private int size;
+    private boolean sorted = true;
+
+    void add(long id) {
+        if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+        if (size > 0 && ids[size - 1] > id) sorted = false;
+        ids[size++] = id;
+    }
+
+    boolean contains(long id) {
+        if (!sorted) {
+            Arrays.sort(ids, 0, size);
+            sorted = true;
+        }
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.s408766.shooter.utils.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import ru.s408766.shooter.utils.PasswordUtil;
+import ru.s408766.shooter.utils.ProjectSettings;
+import ru.s408766.shooter.utils.ServerBusyException;
+import ru.s408766.shooter.utils.metrics.RequestPhase;
+import ru.s408766.shooter.utils.metrics.RequestTimings;
+
+import java.util.concurrent.*;
+
+// Хэширование паролей на отдельном ограниченном пуле: не больше shooter.password.threads хэшей одновременно
+// и shooter.password.queue-size в очереди, остальное отклоняется с ServerBusyException (503)
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PasswordHashingService {
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        int threads = ProjectSettings.getInt("shooter.password.threads", Runtime.getRuntime().availableProcessors());
+        int queueSize = ProjectSettings.getInt("shooter.password.queue-size", threads * 4);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String hash(String password) throws ServerBusyException {
+        return await(() -> PasswordUtil.hashPassword(password));
+    }
+
+    public boolean verify(String password, String storedHash) throws ServerBusyException {
+        return await(() -> PasswordUtil.verifyPassword(password, storedHash));
+    }
+
+    private <T> T await(Callable<T> task) {
+        long start = System.nanoTime();
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            throw new ServerBusyException("Too many authentication requests, try again later", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerBusyException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            RequestTimings.add(RequestPhase.HASHING, System.nanoTime() - start);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.s408766.shooter.utils.services;
+
+import ru.s408766.shooter.utils.models.ResultInfo;
+import ru.s408766.shooter.utils.models.ResultView;
+import ru.s408766.shooter.utils.services.db.ResultService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Загрузка кэша пользователя из БД вместе с событиями ResultsAddedEvent, пришедшими во время чтения.
+// Такие события откладываются и после чтения применяются только для строк, которых загрузка не видела
+// (сверка по id через LoadedIds). После загрузки события применяются сразу: наблюдатель AFTER_SUCCESS
+// идёт в том же потоке сразу за коммитом, так что его строка не старше запроса загрузки.
+// Отложенные события под монитором самого объекта, отдельно от блокировки кэша,
+// чтобы коммитящий поток не ждал, пока идёт запрос к БД
+final class PendingResults {
+    // null после загрузки
+    private List<ResultInfo> pending = new ArrayList<>();
+
+    // true - загрузка ещё не закончилась и событие отложено, иначе его надо применить самому
+    synchronized boolean defer(ResultInfo result) {
+        if (pending == null) return false;
+        pending.add(result);
+        return true;
+    }
+
+    synchronized boolean isLoaded() {
+        return pending == null;
+    }
+
+    // loaded - строка из БД, arrived - отложенное событие, строки которого загрузка не видела.
+    // Если чтение упало, объект остаётся незагруженным: кэш должен выбросить недостроенную запись
+    void load(ResultService resultService, long userId, Consumer<ResultView> loaded, Consumer<ResultInfo> arrived) {
+        LoadedIds loadedIds = new LoadedIds();
+        resultService.streamResultsForUser(userId, null, result -> {
+            loadedIds.add(result.id());
+            loaded.accept(result);
+        });
+        List<ResultInfo> deferred;
+        synchronized (this) {
+            deferred = pending;
+            pending = null;
+        }
+        for (ResultInfo result : deferred) {
+            if (!loadedIds.contains(result.getId())) arrived.accept(result);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ru.s408766.shooter.utils.services;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import ru.s408766.shooter.utils.events.ResultsAddedEvent;
+import ru.s408766.shooter.utils.events.ResultsClearedEvent;
+import ru.s408766.shooter.utils.models.ResultInfo;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Живая лента результатов: по SseBroadcaster на пользователя, в него регистрируются все его вкладки.
+// Подключение - это только SseEventSink в broadcaster'е, поток на клиента не держится: запись асинхронная,
+// так что тысячи простаивающих соединений стоят памяти, а не потоков.
+// События отправляются после коммита (AFTER_SUCCESS), поэтому клиент видит только сохранённое.
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ResultFeedService {
+    public static final String RESULT_EVENT = "result";
+    public static final String CLEAR_EVENT = "clear";
+
+    private static final class UserFeed {
+        private final SseBroadcaster broadcaster;
+        // открытые соединения по ссылке на sink: onError и onClose одного sink'а вычитают его один раз.
+        // Меняется только внутри feeds.compute
+        private final Set<SseEventSink> sinks = Collections.newSetFromMap(new IdentityHashMap<>());
+        private volatile int connections;
+
+        UserFeed(SseBroadcaster broadcaster) {
+            this.broadcaster = broadcaster;
+        }
+    }
+
+    private final Map<Long, UserFeed> feeds = new ConcurrentHashMap<>();
+    // Sse от JAX-RS рантайма, запоминается при первом подключении
+    private volatile Sse sse;
+
+    public void subscribe(long userId, SseEventSink sink, Sse sse) {
+        this.sse = sse;
+        feeds.compute(userId, (id, feed) -> {
+            if (feed == null) {
+                UserFeed created = new UserFeed(sse.newBroadcaster());
+                created.broadcaster.onClose(closed -> release(userId, created, closed));
+                created.broadcaster.onError((failed, error) -> release(userId, created, failed));
+                feed = created;
+            }
+            if (feed.sinks.add(sink)) feed.connections = feed.sinks.size();
+            feed.broadcaster.register(sink);
+            return feed;
+        });
+    }
+
+    // последнее соединение ушло - broadcaster закрываем и убираем. Закрываем уже после compute:
+    // close() может снова позвать onClose, а вложенный compute по тому же ключу запрещён
+    private void release(long userId, UserFeed feed, SseEventSink sink) {
+        boolean[] emptied = {false};
+        feeds.computeIfPresent(userId, (id, current) -> {
+            if (current != feed || !current.sinks.remove(sink)) return current;
+            current.connections = current.sinks.size();
+            if (!current.sinks.isEmpty()) return current;
+            emptied[0] = true;
+            return null;
+        });
+        if (emptied[0]) feed.broadcaster.close();
+    }
+
+    public int getConnectionCount() {
+        return feeds.values().stream().mapToInt(feed -> feed.connections).sum();
+    }
+
+    // broadcaster мог закрыться между feeds.get и отправкой - такому событию слать уже некому
+    private static void send(UserFeed feed, OutboundSseEvent event) {
+        try {
+            feed.broadcaster.broadcast(event);
+        } catch (IllegalStateException e) {
+            // закрыт
+        }
+    }
+
+    public void onResultsAdded(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsAddedEvent event) {
+        Sse current = sse;
+        if (current == null) return;
+        for (ResultInfo result : event.results()) {
+            UserFeed feed = feeds.get(result.getUser().getId());
+            if (feed == null) continue;
+            send(feed, current.newEventBuilder()
+                    .name(RESULT_EVENT)
+                    .id(String.valueOf(result.getId()))
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(result.toJSONObject().toString())
+                    .build());
+        }
+    }
+
+    public void onResultsCleared(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsClearedEvent event) {
+        Sse current = sse;
+        UserFeed feed = feeds.get(event.userId());
+        if (current == null || feed == null) return;
+        send(feed, current.newEventBuilder()
+                .name(CLEAR_EVENT)
+                .data("")
+                .build());
+    }
+
+    // Комментарий-пинг: держит соединение через прокси и выявляет отвалившихся клиентов
+    // (разрыв замечается только при записи, тогда срабатывает onError и соединение освобождается)
+    @Schedule(second = "*/30", minute = "*", hour = "*", persistent = false)
+    void heartbeat() {
+        Sse current = sse;
+        if (current == null || feeds.isEmpty()) return;
+        OutboundSseEvent ping = current.newEventBuilder().comment("ping").build();
+        for (UserFeed feed : feeds.values()) {
+            send(feed, ping);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.s408766.shooter.utils.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import ru.s408766.shooter.utils.ProjectSettings;
+import ru.s408766.shooter.utils.events.ResultsAddedEvent;
+import ru.s408766.shooter.utils.events.ResultsClearedEvent;
+import ru.s408766.shooter.utils.models.ResultColumns;
+import ru.s408766.shooter.utils.models.ResultInfo;
+import ru.s408766.shooter.utils.services.db.ResultService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Снимок результатов пользователя в колонках (ResultColumns): один раз читается из БД, дальше только дописывается
+// событиями, поэтому get-results?since=<версия> стоит O(новых выстрелов). Снимки вытесняются по LRU с учётом размера.
+// Версия = эпоха снимка в старших 32 битах и число результатов в младших. Каждый новый снимок (первое чтение,
+// после clear-results или вытеснения) получает новую эпоху, и клиент со старой версией получает всё заново с reset.
+// События, пришедшие до конца загрузки, откладывает PendingResults.
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ResultSnapshotService {
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    public record Delta(long version, boolean reset, ResultColumns.Slice results) {
+    }
+
+    private final class UserSnapshot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int epoch = epochs.incrementAndGet();
+        private final ResultColumns columns = new ResultColumns();
+        private final PendingResults pending = new PendingResults();
+        // вес в КиБ для вытеснения, меняется только при росте массивов
+        private volatile int weight = 1;
+
+        long version() {
+            return (long) epoch << 32 | columns.size();
+        }
+
+        boolean updateWeight() {
+            int newWeight = (int) Math.min(Math.max(columns.capacityBytes() >>> 10, 1), Integer.MAX_VALUE);
+            if (newWeight == weight) return false;
+            weight = newWeight;
+            return true;
+        }
+    }
+
+    @EJB
+    private ResultService resultService;
+
+    // со случайного места, чтобы версии, выданные до рестарта, не совпали с новыми
+    private final AtomicInteger epochs = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+
+    private final Cache<Long, UserSnapshot> snapshots = Caffeine.newBuilder()
+            .maximumWeight(ProjectSettings.getLong("shooter.snapshots.max-mb", 64) * 1024)
+            .weigher((Long userId, UserSnapshot snapshot) -> snapshot.weight)
+            .recordStats()
+            .build();
+
+    // since == null или версия чужого снимка - отдаём всё с reset = true, иначе только результаты после since
+    public Delta getDelta(long userId, Long since) {
+        UserSnapshot snapshot = snapshots.get(userId, id -> new UserSnapshot());
+        snapshot.lock.lock();
+        try {
+            if (!snapshot.pending.isLoaded()) {
+                try {
+                    snapshot.pending.load(resultService, userId, snapshot.columns::append, snapshot.columns::append);
+                } catch (RuntimeException e) {
+                    // недостроенный снимок не оставляем: следующий запрос построит его заново
+                    snapshots.asMap().remove(userId, snapshot);
+                    throw e;
+                }
+                reweigh(userId, snapshot);
+            }
+            int size = snapshot.columns.size();
+            boolean sameEpoch = since != null && (int) (since >>> 32) == snapshot.epoch
+                    && (since & COUNT_MASK) <= size;
+            int from = sameEpoch ? (int) (since & COUNT_MASK) : 0;
+            return new Delta(snapshot.version(), !sameEpoch, snapshot.columns.slice(from));
+        } finally {
+            snapshot.lock.unlock();
+        }
+    }
+
+    // вес в Caffeine пересчитывается только при записи, поэтому после роста кладём тот же снимок заново
+    private void reweigh(long userId, UserSnapshot snapshot) {
+        if (snapshot.updateWeight()) snapshots.asMap().replace(userId, snapshot, snapshot);
+    }
+
+    public void onResultsAdded(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsAddedEvent event) {
+        for (ResultInfo result : event.results()) {
+            // снимка ещё нет - его построит запрос к БД, где эта строка уже будет
+            long userId = result.getUser().getId();
+            UserSnapshot snapshot = snapshots.getIfPresent(userId);
+            if (snapshot == null || snapshot.pending.defer(result)) continue;
+            snapshot.lock.lock();
+            try {
+                snapshot.columns.append(result);
+                reweigh(userId, snapshot);
+            } finally {
+                snapshot.lock.unlock();
+            }
+        }
+    }
+
+    public void onResultsCleared(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsClearedEvent event) {
+        snapshots.invalidate(event.userId());
+    }
+
+    public CacheStats getStats() {
+        return snapshots.stats();
+    }
+}
@@ -0,0 +1,134 @@
+package ru.s408766.shooter.utils.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import ru.s408766.shooter.utils.ProjectConstants;
+import ru.s408766.shooter.utils.ProjectSettings;
+import ru.s408766.shooter.utils.events.ResultsAddedEvent;
+import ru.s408766.shooter.utils.events.ResultsClearedEvent;
+import ru.s408766.shooter.utils.models.ResultInfo;
+import ru.s408766.shooter.utils.models.Shape;
+import ru.s408766.shooter.utils.services.db.ResultService;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Сетка BASE_RESOLUTION x BASE_RESOLUTION над областью ProjectConstants: hit/miss по ячейкам для каждого радиуса.
+// Сетка пользователя один раз строится проходом по его строкам, дальше только инкрементится событиями,
+// поэтому чтение стоит O(ячеек), а не O(выстрелов). Сетки вытесняются по LRU.
+// События, пришедшие до конца загрузки, откладывает PendingResults.
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ResultTileService {
+    public static final int BASE_RESOLUTION = 64;
+    private static final double SCALE_X = BASE_RESOLUTION / (ProjectConstants.MAX_X - ProjectConstants.MIN_X);
+    private static final double SCALE_Y = BASE_RESOLUTION / (ProjectConstants.MAX_Y - ProjectConstants.MIN_Y);
+
+    public record TileGrid(double radius, int resolution, int[] hits, int[] totals) {
+    }
+
+    private static final class UserTiles {
+        private final ReentrantLock lock = new ReentrantLock();
+        // [индекс радиуса][cy * BASE_RESOLUTION + cx], массив заводится при первом выстреле с этим радиусом
+        private final int[][] hits = new int[Shape.radiusCount()][];
+        private final int[][] totals = new int[Shape.radiusCount()][];
+        private final PendingResults pending = new PendingResults();
+
+        void add(int radiusIndex, int cell, long hitCount, long totalCount) {
+            if (totals[radiusIndex] == null) {
+                hits[radiusIndex] = new int[BASE_RESOLUTION * BASE_RESOLUTION];
+                totals[radiusIndex] = new int[BASE_RESOLUTION * BASE_RESOLUTION];
+            }
+            hits[radiusIndex][cell] += (int) hitCount;
+            totals[radiusIndex][cell] += (int) totalCount;
+        }
+    }
+
+    @EJB
+    private ResultService resultService;
+
+    private final Cache<Long, UserTiles> tiles = Caffeine.newBuilder()
+            .maximumSize(ProjectSettings.getInt("shooter.tiles.max-users", 1000))
+            .build();
+
+    static int cellX(double x) {
+        return Math.min(Math.max((int) Math.floor((x - ProjectConstants.MIN_X) * SCALE_X), 0), BASE_RESOLUTION - 1);
+    }
+
+    static int cellY(double y) {
+        return Math.min(Math.max((int) Math.floor((y - ProjectConstants.MIN_Y) * SCALE_Y), 0), BASE_RESOLUTION - 1);
+    }
+
+    // resolution - степень двойки от 1 до BASE_RESOLUTION; ячейки базовой сетки складываются блоками
+    public TileGrid getTiles(long userId, double radius, int resolution) {
+        int radiusIndex = Shape.radiusIndex(radius);
+        UserTiles userTiles = tiles.get(userId, id -> new UserTiles());
+        int[] hits = new int[resolution * resolution];
+        int[] totals = new int[resolution * resolution];
+        int factor = BASE_RESOLUTION / resolution;
+        userTiles.lock.lock();
+        try {
+            if (!userTiles.pending.isLoaded()) {
+                try {
+                    userTiles.pending.load(resultService, userId,
+                            result -> add(userTiles, result.r(), result.x(), result.y(), result.isHit()),
+                            result -> add(userTiles, result));
+                } catch (RuntimeException e) {
+                    // недостроенную сетку не оставляем: следующий запрос построит её заново
+                    tiles.asMap().remove(userId, userTiles);
+                    throw e;
+                }
+            }
+            int[] baseHits = userTiles.hits[radiusIndex];
+            int[] baseTotals = userTiles.totals[radiusIndex];
+            if (baseTotals != null) {
+                for (int cy = 0; cy < BASE_RESOLUTION; cy++) {
+                    int row = cy / factor * resolution;
+                    for (int cx = 0; cx < BASE_RESOLUTION; cx++) {
+                        int cell = row + cx / factor;
+                        hits[cell] += baseHits[cy * BASE_RESOLUTION + cx];
+                        totals[cell] += baseTotals[cy * BASE_RESOLUTION + cx];
+                    }
+                }
+            }
+        } finally {
+            userTiles.lock.unlock();
+        }
+        return new TileGrid(radius, resolution, hits, totals);
+    }
+
+    private static void add(UserTiles userTiles, ResultInfo result) {
+        add(userTiles, result.getShapeRadius(), result.getShotX(), result.getShotY(), result.isResult());
+    }
+
+    private static void add(UserTiles userTiles, double radius, double x, double y, boolean hit) {
+        int radiusIndex = Shape.radiusIndex(radius);
+        if (radiusIndex < 0) return;
+        userTiles.add(radiusIndex, cellY(y) * BASE_RESOLUTION + cellX(x), hit ? 1 : 0, 1);
+    }
+
+    public void onResultsAdded(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsAddedEvent event) {
+        List<ResultInfo> results = event.results();
+        for (ResultInfo result : results) {
+            // сетки ещё нет - её построит запрос к БД, где эта строка уже будет
+            UserTiles userTiles = tiles.getIfPresent(result.getUser().getId());
+            if (userTiles == null || userTiles.pending.defer(result)) continue;
+            userTiles.lock.lock();
+            try {
+                add(userTiles, result);
+            } finally {
+                userTiles.lock.unlock();
+            }
+        }
+    }
+
+    public void onResultsCleared(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsClearedEvent event) {
+        tiles.invalidate(event.userId());
+    }
+}
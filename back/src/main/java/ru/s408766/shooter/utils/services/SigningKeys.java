@@ -0,0 +1,68 @@
+package ru.s408766.shooter.utils.services;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import ru.s408766.shooter.utils.ProjectSettings;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Base64;
+import java.util.EnumSet;
+
+// Ключ подписи JWT переживает рестарты и общий для всех узлов:
+// берётся из shooter.jwt.secret (base64, от 64 байт), иначе из файла shooter.jwt.key-file,
+// а если файла нет - генерируется и записывается туда (только для владельца)
+final class SigningKeys {
+    private SigningKeys() {
+    }
+
+    static SecretKey load() {
+        String secret = ProjectSettings.get("shooter.jwt.secret", null);
+        if (secret != null) return Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret.trim()));
+
+        String dataDir = System.getProperty("jboss.server.data.dir", System.getProperty("user.home"));
+        Path keyFile = Path.of(ProjectSettings.get("shooter.jwt.key-file", Path.of(dataDir, "shooter-jwt.key").toString()));
+        try {
+            if (Files.exists(keyFile)) return readKey(keyFile);
+            SecretKey key = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+            try {
+                Files.createDirectories(keyFile.toAbsolutePath().getParent());
+                writeKey(keyFile, key);
+                return key;
+            } catch (FileAlreadyExistsException e) {
+                // другой узел успел раньше - берём его ключ
+                return readKey(keyFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load JWT signing key from " + keyFile, e);
+        }
+    }
+
+    // файл создаётся сразу с правами rw------- (а не по umask и потом chmod), так что ключ никогда
+    // не бывает доступен на чтение другим; без POSIX-прав ключ на диск не пишем вовсе
+    private static void writeKey(Path keyFile, SecretKey key) throws IOException {
+        if (!keyFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            throw new IllegalStateException("Cannot restrict permissions of " + keyFile
+                    + " on this file system, set shooter.jwt.secret instead");
+        }
+        byte[] encoded = Base64.getEncoder().encode(key.getEncoded());
+        try (SeekableByteChannel channel = Files.newByteChannel(keyFile,
+                EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))) {
+            ByteBuffer buffer = ByteBuffer.wrap(encoded);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private static SecretKey readKey(Path keyFile) throws IOException {
+        return Keys.hmacShaKeyFor(Base64.getDecoder().decode(Files.readString(keyFile).trim()));
+    }
+}
@@ -1,46 +1,107 @@
 package ru.s408766.shooter.utils.services;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Base64;
 import java.util.Date;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
-import ru.s408766.shooter.utils.models.User;
-import ru.s408766.shooter.utils.services.db.UserService;
+import ru.s408766.shooter.utils.metrics.RequestPhase;
+import ru.s408766.shooter.utils.metrics.RequestTimings;
+import ru.s408766.shooter.utils.models.AuthenticatedUser;
 
 @Stateless
 public class TokenService {
-    private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+    private static final Key SECRET_KEY = SigningKeys.load();
+    // парсер потокобезопасен, собираем один раз
+    private static final JwtParser PARSER = Jwts.parserBuilder().setSigningKey(SECRET_KEY).build();
     private static final long EXPIRATION_TIME = 86400000;
+    private static final int MAX_TOKEN_LENGTH = 1024;
+    private static final String USER_ID_CLAIM = "uid";
     @EJB
-    private UserService userService;
+    private UserCacheService userCacheService;
 
-    public String generateToken(String login) {
+    public String generateToken(long userId, String email) {
         return Jwts.builder()
-                .setSubject(login)
+                .setSubject(email)
+                .claim(USER_ID_CLAIM, userId)
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(SignatureAlgorithm.HS512, SECRET_KEY)
+                .signWith(SECRET_KEY, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public User getUserFromToken(String token) {
-        String login = validateToken(token);
-        if (login == null) return null;
-        return userService.findByUsername(login);
+    // Пользователь берётся из claims токена, БД не трогаем
+    public AuthenticatedUser authenticate(String token) {
+        AuthenticatedUser user = userCacheService.getIdentity(token);
+        if (user != null) return user;
+        Claims claims = parseClaims(token);
+        if (claims == null) return null;
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        if (userId == null || claims.getSubject() == null) return null;
+        user = new AuthenticatedUser(userId.longValue(), claims.getSubject());
+        userCacheService.putIdentity(token, user, claims.getExpiration());
+        return user;
     }
 
     public String validateToken(String token) {
+        Claims claims = parseClaims(token);
+        return claims == null ? null : claims.getSubject();
+    }
+
+    private Claims parseClaims(String token) {
+        long start = System.nanoTime();
         try {
-            return Jwts.parser()
-                    .setSigningKey(SECRET_KEY)
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (Exception e) {
+            if (!passesPrecheck(token, System.currentTimeMillis())) return null;
+            return PARSER.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
             return null;
+        } finally {
+            RequestTimings.add(RequestPhase.JWT, System.nanoTime() - start);
+        }
+    }
+
+    // Дешёвые проверки до криптографии и без исключений: формат header.payload.signature и exp
+    private static boolean passesPrecheck(String token, long now) {
+        if (token == null || token.isEmpty() || token.length() > MAX_TOKEN_LENGTH) return false;
+        int firstDot = -1;
+        int secondDot = -1;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (firstDot < 0) firstDot = i;
+                else if (secondDot < 0) secondDot = i;
+                else return false;
+            } else if (!isBase64UrlChar(c)) {
+                return false;
+            }
+        }
+        if (firstDot <= 0 || secondDot <= firstDot + 1 || secondDot == token.length() - 1) return false;
+        long expiration = readExpiration(token.substring(firstDot + 1, secondDot));
+        // exp не нашли - пусть решает полноценный парсер
+        return expiration < 0 || expiration * 1000 > now;
+    }
+
+    private static boolean isBase64UrlChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    private static long readExpiration(String encodedPayload) {
+        String payload = new String(Base64.getUrlDecoder().decode(encodedPayload), StandardCharsets.UTF_8);
+        int key = payload.indexOf("\"exp\":");
+        if (key < 0) return -1;
+        int i = key + "\"exp\":".length();
+        while (i < payload.length() && payload.charAt(i) == ' ') i++;
+        long value = 0;
+        int digits = 0;
+        for (; i < payload.length() && Character.isDigit(payload.charAt(i)) && digits < 18; i++, digits++) {
+            value = value * 10 + (payload.charAt(i) - '0');
         }
+        return digits == 0 ? -1 : value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package ru.s408766.shooter.utils.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import ru.s408766.shooter.utils.models.AuthenticatedUser;
+import ru.s408766.shooter.utils.models.UserCredentials;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Кэш аутентификации: проверенный токен -> пользователь из его claims и email -> строка пользователя.
+// Токен живёт в кэше ровно до своего exp, пользователь - USER_TTL_MINUTES.
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserCacheService {
+    private static final long MAX_TOKENS = 50_000;
+    private static final long MAX_USERS = 10_000;
+    private static final long USER_TTL_MINUTES = 5;
+
+    private record TokenIdentity(AuthenticatedUser user, long expiresAt) {
+    }
+
+    private final Cache<String, TokenIdentity> tokens = Caffeine.newBuilder()
+            .maximumSize(MAX_TOKENS)
+            .expireAfter(new Expiry<String, TokenIdentity>() {
+                @Override
+                public long expireAfterCreate(String token, TokenIdentity identity, long currentTime) {
+                    long millisLeft = identity.expiresAt() - System.currentTimeMillis();
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, TokenIdentity identity, long currentTime, long currentDuration) {
+                    return expireAfterCreate(token, identity, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String token, TokenIdentity identity, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+    // В кэше лежит future загрузки, а не сама строка: invalidateUser удаляет и незавершённую загрузку,
+    // и её результат в кэш уже не попадёт. С getIfPresent -> load -> put загрузка, прочитавшая строку
+    // до смены пароля, клала её обратно после invalidate, и старый пароль работал ещё USER_TTL_MINUTES
+    private final AsyncCache<String, UserCredentials> users = Caffeine.newBuilder()
+            .maximumSize(MAX_USERS)
+            .expireAfterWrite(USER_TTL_MINUTES, TimeUnit.MINUTES)
+            .recordStats()
+            .buildAsync();
+
+    public AuthenticatedUser getIdentity(String token) {
+        TokenIdentity identity = tokens.getIfPresent(token);
+        return identity == null ? null : identity.user();
+    }
+
+    public void putIdentity(String token, AuthenticatedUser user, Date expiresAt) {
+        if (expiresAt == null) return;
+        tokens.put(token, new TokenIdentity(user, expiresAt.getTime()));
+    }
+
+    // loader может вернуть null - тогда в кэш ничего не попадает (Caffeine убирает future с null сам).
+    // Загружает тот, кто первым поставил future, остальные ждут её. Загрузка идёт вне compute():
+    // loader ходит в БД, а под блокировкой ячейки виртуальный поток прикалывается к носителю
+    public UserCredentials getUser(String login, Function<String, UserCredentials> loader) {
+        CompletableFuture<UserCredentials> cached = users.getIfPresent(login);
+        if (cached == null) {
+            CompletableFuture<UserCredentials> loading = new CompletableFuture<>();
+            cached = users.asMap().putIfAbsent(login, loading);
+            if (cached == null) {
+                try {
+                    UserCredentials loaded = loader.apply(login);
+                    loading.complete(loaded);
+                    return loaded;
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            // чужая загрузка упала - пробуем сами, без кэша
+            return loader.apply(login);
+        }
+    }
+
+    public void invalidateUser(String login) {
+        // вместе с незавершённой загрузкой: её результат в кэш уже не вернётся
+        users.asMap().remove(login);
+        tokens.asMap().values().removeIf(identity -> identity.user().email().equals(login));
+    }
+
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("tokens", tokens.stats());
+        stats.put("users", users.synchronous().stats());
+        return stats;
+    }
+}
@@ -0,0 +1,240 @@
+package ru.s408766.shooter.utils.services.db;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import ru.s408766.shooter.utils.ProjectSettings;
+import ru.s408766.shooter.utils.events.ResultsClearedEvent;
+import ru.s408766.shooter.utils.models.ResultArchive;
+import ru.s408766.shooter.utils.models.ResultView;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Холодный слой результатов: строки старше shooter.archive.max-age-days переезжают из resultInfos
+// в файл пользователя <dir>/<userId>.results (формат - ResultArchive). Файл упорядочен по id, но с пулом id
+// в таблице могут остаться и строки меньше его последнего id (закоммичены после переноса), поэтому чтения
+// сливают слои по id, а такие строки при следующем переносе вставляются в файл на место (файл переписывается).
+// Чтение обоих слоёв идёт под read-блокировкой пользователя, перенос - под write, так что читатель
+// не увидит строки дважды или ни разу, пока они переезжают.
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ResultArchiveService {
+    private static final Logger LOGGER = Logger.getLogger(ResultArchiveService.class.getName());
+    private static final boolean ENABLED = ProjectSettings.getBoolean("shooter.archive.enabled", true);
+    private static final Path DIRECTORY = Paths.get(ProjectSettings.get("shooter.archive.dir",
+            Paths.get(System.getProperty("user.home"), "shooter-archive").toString()));
+    private static final long MAX_AGE_MILLIS =
+            TimeUnit.DAYS.toMillis(ProjectSettings.getLong("shooter.archive.max-age-days", 90));
+    // строк одного пользователя за запуск и пользователей за запуск
+    private static final int BATCH_SIZE = ProjectSettings.getInt("shooter.archive.batch-size", 50_000);
+    private static final int USERS_PER_RUN = ProjectSettings.getInt("shooter.archive.users-per-run", 100);
+    // сколько ждать читателей пользователя, прежде чем отложить его до следующего запуска
+    private static final long LOCK_WAIT_MILLIS = 1000;
+    private static final int LOCK_STRIPES = 64;
+    private static final int WRITE_BUFFER_RECORDS = 4096;
+
+    @FunctionalInterface
+    public interface ArchiveReader<T, E extends Exception> {
+        T read(ResultArchive archive) throws E;
+    }
+
+    @EJB
+    private ResultService resultService;
+
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    private final AtomicBoolean running = new AtomicBoolean();
+    // отображения открытых архивов; сбрасываются при каждой дозаписи и удалении
+    private final Cache<Long, ResultArchive> mapped = Caffeine.newBuilder()
+            .maximumSize(ProjectSettings.getInt("shooter.archive.mapped-users", 256))
+            .build();
+
+    public ResultArchiveService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    private ReentrantReadWriteLock lockFor(long userId) {
+        return locks[Long.hashCode(userId) & (LOCK_STRIPES - 1)];
+    }
+
+    private static Path fileFor(long userId) {
+        return DIRECTORY.resolve(userId + ".results");
+    }
+
+    // reader видит архив и может читать таблицу: перенос этого пользователя ждёт, пока reader не закончит
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public <T, E extends Exception> T read(long userId, ArchiveReader<T, E> reader) throws E {
+        ReentrantReadWriteLock lock = lockFor(userId);
+        lock.readLock().lock();
+        try {
+            return reader.read(archiveFor(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // отображаем вне compute() кэша: открытие файла - блокирующий ввод-вывод
+    private ResultArchive archiveFor(long userId) {
+        ResultArchive archive = mapped.getIfPresent(userId);
+        if (archive != null) return archive;
+        archive = map(fileFor(userId));
+        mapped.put(userId, archive);
+        return archive;
+    }
+
+    // одно отображение ограничено 2 ГБ, это ~53 млн выстрелов на пользователя
+    private static ResultArchive map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size() - channel.size() % ResultArchive.RECORD_BYTES;
+            if (size == 0) return ResultArchive.EMPTY;
+            return new ResultArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (NoSuchFileException e) {
+            return ResultArchive.EMPTY;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // каждый пользователь переносится в своих транзакциях ResultService, поэтому здесь транзакции нет
+    @Schedule(minute = "17", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    void archiveOldResults() {
+        if (!ENABLED || !running.compareAndSet(false, true)) return;
+        try {
+            Files.createDirectories(DIRECTORY);
+            Date cutoff = new Date(System.currentTimeMillis() - MAX_AGE_MILLIS);
+            int archived = 0;
+            for (long userId : resultService.findUsersWithResultsBefore(cutoff, USERS_PER_RUN)) {
+                archived += archiveUser(userId, cutoff);
+            }
+            if (archived > 0) LOGGER.info("Archived " + archived + " results older than " + cutoff);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Result archiving failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Файл дописывается (или переписывается, если есть строки меньше его последнего id) и сбрасывается на диск
+    // до удаления строк. Удаляются ровно строки, прочитанные здесь: закоммиченная позже остаётся в таблице.
+    // Если удаление не случилось, следующий запуск выберет те же строки и не запишет их повторно (сверка по id)
+    private int archiveUser(long userId, Date cutoff) throws IOException, InterruptedException {
+        ReentrantReadWriteLock lock = lockFor(userId);
+        if (!lock.writeLock().tryLock(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) return 0;
+        try {
+            long upToId = resultService.findArchiveBoundary(userId, cutoff, BATCH_SIZE);
+            if (upToId == 0) return 0;
+            List<ResultView> rows = new ArrayList<>();
+            resultService.streamResultsForArchive(userId, upToId, rows::add);
+            if (rows.isEmpty()) return 0;
+            Path file = fileFor(userId);
+            List<ResultView> fresh;
+            try {
+                ResultArchive archive = map(file);
+                fresh = rows.stream().filter(row -> !archive.contains(row.id())).toList();
+                if (!fresh.isEmpty()) {
+                    if (fresh.get(0).id() > archive.lastId()) append(file, fresh);
+                    else rewrite(file, archive, fresh);
+                }
+            } finally {
+                mapped.invalidate(userId);
+            }
+            resultService.deleteArchivedResults(userId, rows.stream().mapToLong(ResultView::id).toArray());
+            return fresh.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void append(Path file, List<ResultView> rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // оборванную прошлую дозапись отрезаем
+            long size = channel.size() - channel.size() % ResultArchive.RECORD_BYTES;
+            channel.truncate(size);
+            channel.position(size);
+            write(channel, rows, ResultArchive.EMPTY);
+        }
+    }
+
+    // Новый файл рядом со старым: записи архива копируются кусками, строки вставляются на свои места по id.
+    // Старый файл заменяется атомарно, так что после сбоя на диске либо он, либо новый целиком
+    private static void rewrite(Path file, ResultArchive archive, List<ResultView> rows) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, rows, archive);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // rows и archive по возрастанию id, без общих id
+    private static void write(FileChannel channel, List<ResultView> rows, ResultArchive archive) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ResultArchive.RECORD_BYTES * WRITE_BUFFER_RECORDS)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int copied = 0;
+        for (ResultView row : rows) {
+            int before = archive.indexAfter(row.id());
+            if (before > copied) {
+                drain(channel, buffer);
+                writeFully(channel, archive.records(copied, before));
+                copied = before;
+            }
+            if (buffer.remaining() < ResultArchive.RECORD_BYTES) drain(channel, buffer);
+            ResultArchive.encode(buffer, row);
+        }
+        drain(channel, buffer);
+        if (copied < archive.count()) writeFully(channel, archive.records(copied, archive.count()));
+        channel.force(false);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    public void onResultsCleared(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResultsClearedEvent event) {
+        ReentrantReadWriteLock lock = lockFor(event.userId());
+        lock.writeLock().lock();
+        try {
+            mapped.invalidate(event.userId());
+            Files.deleteIfExists(fileFor(event.userId()));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete result archive of user " + event.userId(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,32 +1,311 @@
 package ru.s408766.shooter.utils.services.db;
 
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.SessionContext;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptors;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.Persistence;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import ru.s408766.shooter.utils.events.ResultsAddedEvent;
+import ru.s408766.shooter.utils.events.ResultsClearedEvent;
+import ru.s408766.shooter.utils.metrics.DbTimingInterceptor;
 import ru.s408766.shooter.utils.models.ResultInfo;
-import ru.s408766.shooter.utils.models.User;
+import ru.s408766.shooter.utils.models.ResultStats;
+import ru.s408766.shooter.utils.models.ResultView;
+import ru.s408766.shooter.utils.models.ShotColumns;
+
+import javax.sql.DataSource;
+
+import java.security.InvalidParameterException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Stateless
+@Interceptors(DbTimingInterceptor.class)
 public class ResultService {
-    private static final EntityManager em = Persistence.createEntityManagerFactory("default").createEntityManager();
+    // должен совпадать с hibernate.jdbc.batch_size в persistence.xml
+    private static final int BATCH_SIZE = 50;
+    // сколько строк курсор тянет из БД за один раз при потоковой выдаче
+    private static final int FETCH_SIZE = 500;
+    // id в одном DELETE ... IN: у PostgreSQL не больше 32767 параметров на запрос
+    private static final int DELETE_CHUNK = 1000;
+    public static final Set<String> STATS_BUCKETS = Set.of("hour", "day", "week", "month");
+    private static final String STATS_COLUMNS =
+            "COUNT(r), SUM(CASE WHEN r.result = true THEN 1 ELSE 0 END), AVG(r.executionTime)";
+    private static final String VIEW_COLUMNS = "new ru.s408766.shooter.utils.models.ResultView(" +
+            "r.id, r.shotX, r.shotY, r.shapeRadius, r.result, r.executionTime, r.timestamp)";
+    @PersistenceContext(unitName = "default")
+    private EntityManager em;
+    @Resource
+    private SessionContext sessionContext;
+    @Resource(lookup = "java:app/jdbc/shooter")
+    private DataSource dataSource;
+    @Inject
+    private Event<ResultsAddedEvent> resultsAdded;
+    @Inject
+    private Event<ResultsClearedEvent> resultsCleared;
+    @EJB
+    private ResultArchiveService resultArchiveService;
 
     public boolean saveResultToDb(ResultInfo result) {
         try {
-            em.getTransaction().begin();
             em.persist(result);
-            em.getTransaction().commit();
+            em.flush();
+            resultsAdded.fire(new ResultsAddedEvent(List.of(result)));
+            return true;
+        } catch (PersistenceException e) {
+            sessionContext.setRollbackOnly();
+            return false;
+        }
+    }
+
+    public boolean saveResultsToDb(List<ResultInfo> results) {
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                em.persist(results.get(i));
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            resultsAdded.fire(new ResultsAddedEvent(results));
             return true;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
+        } catch (PersistenceException e) {
+            sessionContext.setRollbackOnly();
             return false;
         }
     }
 
-    public void clearResultsForUser(User user) {
-        em.getTransaction().begin();
-        em.createQuery("DELETE FROM ResultInfo r WHERE r.user = :user")
-                .setParameter("user", user)
+    // Все чтения ниже объединяют архив (ResultArchiveService) и таблицу. Курсор after сквозной для обоих слоёв,
+    // но таблица не обрезается по последнему id архива: с пулом id в ней бывают строки и меньше его
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<ResultView> getResultsPage(long userId, Long after, int limit) {
+        return resultArchiveService.read(userId, archive -> archive.page(after,
+                em.createQuery("SELECT " + VIEW_COLUMNS + " FROM ResultInfo r " +
+                                "WHERE r.user.id = :userId AND r.id > :after ORDER BY r.id", ResultView.class)
+                        .setParameter("userId", userId)
+                        .setParameter("after", after == null ? 0L : after)
+                        .setMaxResults(limit)
+                        .getResultList(),
+                limit));
+    }
+
+    // Транзакция нужна: PostgreSQL держит серверный курсор только при выключенном autocommit
+    // DTO не попадают в контекст персистентности, так что память не растёт с числом строк
+    public void streamResultsForUser(long userId, Long after, Consumer<ResultView> consumer) {
+        resultArchiveService.read(userId, archive -> {
+            try (Stream<ResultView> table = tableResults(userId, after == null ? 0L : after, Long.MAX_VALUE)) {
+                archive.forEachAfter(after, table.iterator(), consumer);
+            }
+            return null;
+        });
+    }
+
+    // только таблица, для переноса в архив: все строки с id <= upTo, в том числе меньше последнего id архива
+    public void streamResultsForArchive(long userId, long upTo, Consumer<ResultView> consumer) {
+        try (Stream<ResultView> table = tableResults(userId, 0, upTo)) {
+            table.forEach(consumer);
+        }
+    }
+
+    // строки с after < id <= upTo по возрастанию id; поток закрывает вызывающий
+    private Stream<ResultView> tableResults(long userId, long after, long upTo) {
+        return em.createQuery("SELECT " + VIEW_COLUMNS + " FROM ResultInfo r " +
+                        "WHERE r.user.id = :userId AND r.id > :after AND r.id <= :upTo ORDER BY r.id", ResultView.class)
+                .setParameter("userId", userId)
+                .setParameter("after", after)
+                .setParameter("upTo", upTo)
+                .setHint("org.hibernate.fetchSize", FETCH_SIZE)
+                .getResultStream();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public ResultStats getStatsForUser(long userId) {
+        return resultArchiveService.read(userId, archive -> {
+            Object[] row = em.createQuery("SELECT " + STATS_COLUMNS + " FROM ResultInfo r WHERE r.user.id = :userId", Object[].class)
+                    .setParameter("userId", userId)
+                    .getSingleResult();
+            return archive.stats().plus(ResultStats.fromRow(row, 0));
+        });
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Map<Double, ResultStats> getStatsByRadius(long userId) {
+        return resultArchiveService.read(userId, archive -> {
+            List<Object[]> rows = em.createQuery("SELECT r.shapeRadius, " + STATS_COLUMNS + " FROM ResultInfo r " +
+                            "WHERE r.user.id = :userId GROUP BY r.shapeRadius ORDER BY r.shapeRadius", Object[].class)
+                    .setParameter("userId", userId)
+                    .getResultList();
+            Map<Double, ResultStats> stats = new TreeMap<>(archive.statsByRadius());
+            for (Object[] row : rows) {
+                stats.merge(((Number) row[0]).doubleValue(), ResultStats.fromRow(row, 1), ResultStats::plus);
+            }
+            return stats;
+        });
+    }
+
+    // bucket - одно из STATS_BUCKETS, уходит в date_trunc PostgreSQL
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @SuppressWarnings("unchecked")
+    public Map<String, ResultStats> getStatsByTime(long userId, String bucket) {
+        if (!STATS_BUCKETS.contains(bucket)) {
+            throw new InvalidParameterException("Bucket should be one of " + STATS_BUCKETS);
+        }
+        return resultArchiveService.read(userId, archive -> {
+            List<Object[]> rows = em.createNativeQuery("SELECT date_trunc(?1, timestamp) AS bucket, COUNT(*), " +
+                            "SUM(CASE WHEN result THEN 1 ELSE 0 END), AVG(executionTime) FROM resultInfos " +
+                            "WHERE user_id = ?2 GROUP BY bucket ORDER BY bucket")
+                    .setParameter(1, bucket)
+                    .setParameter(2, userId)
+                    .getResultList();
+            TreeMap<LocalDateTime, ResultStats> merged = new TreeMap<>(
+                    archive.statsByTime(startTime -> truncate(startTime, bucket)));
+            for (Object[] row : rows) {
+                merged.merge(toLocalDateTime(row[0]), ResultStats.fromRow(row, 1), ResultStats::plus);
+            }
+            Map<String, ResultStats> stats = new LinkedHashMap<>();
+            merged.forEach((start, bucketStats) -> stats.put(String.valueOf(Timestamp.valueOf(start)), bucketStats));
+            return stats;
+        });
+    }
+
+    // timestamp хранится без зоны во времени JVM, так что date_trunc считает корзины в той же зоне
+    private static LocalDateTime truncate(long epochMillis, String bucket) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+        return switch (bucket) {
+            case "hour" -> time.truncatedTo(ChronoUnit.HOURS);
+            case "day" -> time.truncatedTo(ChronoUnit.DAYS);
+            case "week" -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            default -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime time) return time;
+        if (value instanceof Timestamp timestamp) return timestamp.toLocalDateTime();
+        return ((Date) value).toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    // Только координаты, прямо из JDBC в массивы: ни сущностей, ни строк-объектов на точку.
+    // Архив и таблица сливаются по id, как в streamResultsForUser, чтобы порядок был порядком выстрелов
+    public ShotColumns loadShotColumns(long userId) throws SQLException {
+        return resultArchiveService.read(userId, archive -> {
+            int archived = archive.count();
+            double[] xs = new double[Math.max(archived, 1024)];
+            double[] ys = new double[xs.length];
+            int size = 0;
+            int next = 0;
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT id, shotX, shotY FROM resultInfos WHERE user_id = ? ORDER BY id")) {
+                statement.setFetchSize(FETCH_SIZE * 10);
+                statement.setLong(1, userId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long id = resultSet.getLong(1);
+                        for (; next < archived && archive.id(next) <= id; next++) {
+                            if (archive.id(next) == id) continue;
+                            if (size == xs.length) {
+                                xs = Arrays.copyOf(xs, size * 2);
+                                ys = Arrays.copyOf(ys, size * 2);
+                            }
+                            xs[size] = archive.x(next);
+                            ys[size] = archive.y(next);
+                            size++;
+                        }
+                        if (size == xs.length) {
+                            xs = Arrays.copyOf(xs, size * 2);
+                            ys = Arrays.copyOf(ys, size * 2);
+                        }
+                        xs[size] = resultSet.getDouble(2);
+                        ys[size] = resultSet.getDouble(3);
+                        size++;
+                    }
+                }
+            }
+            if (size + archived - next > xs.length) {
+                xs = Arrays.copyOf(xs, size + archived - next);
+                ys = Arrays.copyOf(ys, xs.length);
+            }
+            for (; next < archived; next++) {
+                xs[size] = archive.x(next);
+                ys[size] = archive.y(next);
+                size++;
+            }
+            return new ShotColumns(xs, ys, size);
+        });
+    }
+
+    // Строки-кандидаты в архив: пользователи, у которых есть строки старше cutoff.
+    // Отдельного индекса по timestamp нет - запрос раз в час из фоновой задачи, вставки важнее
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @SuppressWarnings("unchecked")
+    public List<Long> findUsersWithResultsBefore(Date cutoff, int limit) {
+        List<Number> rows = em.createNativeQuery("SELECT DISTINCT user_id FROM resultInfos WHERE timestamp < ?1 LIMIT ?2")
+                .setParameter(1, cutoff)
+                .setParameter(2, limit)
+                .getResultList();
+        return rows.stream().map(Number::longValue).toList();
+    }
+
+    // Граница переноса: max(id) среди первых limit строк старше cutoff. Переносится всё с id <= границы,
+    // в том числе строки меньше последнего id архива, закоммиченные после прошлого переноса (0 - переносить нечего)
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public long findArchiveBoundary(long userId, Date cutoff, int limit) {
+        Object boundary = em.createNativeQuery("SELECT MAX(id) FROM (SELECT id FROM resultInfos " +
+                        "WHERE user_id = ?1 AND timestamp < ?2 ORDER BY id LIMIT ?3) candidates")
+                .setParameter(1, userId)
+                .setParameter(2, cutoff)
+                .setParameter(3, limit)
+                .getSingleResult();
+        return boundary == null ? 0 : ((Number) boundary).longValue();
+    }
+
+    // Удаляются ровно перенесённые строки, а не диапазон id: строка из того же диапазона, закоммиченная
+    // после чтения (пул id), в архив не попала и должна остаться в таблице.
+    // События не нужны: строки не пропали, а переехали в архив
+    public int deleteArchivedResults(long userId, long[] ids) {
+        int deleted = 0;
+        for (int from = 0; from < ids.length; from += DELETE_CHUNK) {
+            List<Long> chunk = Arrays.stream(ids, from, Math.min(from + DELETE_CHUNK, ids.length)).boxed().toList();
+            deleted += em.createQuery("DELETE FROM ResultInfo r WHERE r.user.id = :userId AND r.id IN :ids")
+                    .setParameter("userId", userId)
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        return deleted;
+    }
+
+    public void clearResultsForUser(long userId) {
+        em.createQuery("DELETE FROM ResultInfo r WHERE r.user.id = :userId")
+                .setParameter("userId", userId)
                 .executeUpdate();
-        em.getTransaction().commit();
+        resultsCleared.fire(new ResultsClearedEvent(userId));
     }
-}
\ No newline at end of file
+}
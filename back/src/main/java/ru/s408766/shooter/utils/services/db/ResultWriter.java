@@ -0,0 +1,191 @@
+package ru.s408766.shooter.utils.services.db;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import ru.s408766.shooter.utils.ProjectSettings;
+import ru.s408766.shooter.utils.models.ResultInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Запись результатов в БД с выбираемой надёжностью (shooter.results.durability):
+//  sync         - своя транзакция на каждый выстрел, как раньше;
+//  group-commit - выстрел встаёт в буфер, ответ ждёт коммита общей пачки;
+//  async        - ответ сразу после попадания в буфер, пачку пишет фоновый поток.
+// Пачка уходит в БД, когда набралось shooter.results.batch-size или прошло shooter.results.flush-interval-ms.
+@Singleton
+@Startup
+@DependsOn("SchemaMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ResultWriter {
+    private static final Logger LOGGER = Logger.getLogger(ResultWriter.class.getName());
+    private static final long COMMIT_WAIT_MILLIS = 30_000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+
+    public enum Durability {
+        SYNC,
+        GROUP_COMMIT,
+        ASYNC
+    }
+
+    public enum WriteStatus {
+        ACCEPTED,
+        FAILED,
+        OVERLOADED
+    }
+
+    // committed == null для async: ждать некому
+    private record PendingResult(ResultInfo result, CompletableFuture<Boolean> committed) {
+    }
+
+    @EJB
+    private ResultService resultService;
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private Durability durability;
+    private int batchSize;
+    private long flushIntervalNanos;
+    private long enqueueTimeoutMillis;
+    private BlockingQueue<PendingResult> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    // проверка running и постановка в буфер идут под read-блокировкой, выключение - под write:
+    // после stop() ни одна запись не попадёт в буфер, который писатель уже не разберёт
+    private final ReentrantReadWriteLock accepting = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    void start() {
+        durability = Durability.valueOf(ProjectSettings.get("shooter.results.durability", "sync")
+                .trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        if (durability == Durability.SYNC) return;
+        batchSize = ProjectSettings.getInt("shooter.results.batch-size", 500);
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(ProjectSettings.getLong("shooter.results.flush-interval-ms", 5));
+        enqueueTimeoutMillis = ProjectSettings.getLong("shooter.results.enqueue-timeout-ms", 100);
+        buffer = new ArrayBlockingQueue<>(ProjectSettings.getInt("shooter.results.buffer-size", 10_000));
+        running = true;
+        writer = threadFactory.newThread(this::drain);
+        writer.setName("result-writer");
+        writer.start();
+    }
+
+    public WriteStatus write(ResultInfo result) {
+        if (durability == Durability.SYNC) {
+            return resultService.saveResultToDb(result) ? WriteStatus.ACCEPTED : WriteStatus.FAILED;
+        }
+        PendingResult pending = new PendingResult(result,
+                durability == Durability.GROUP_COMMIT ? new CompletableFuture<>() : null);
+        accepting.readLock().lock();
+        try {
+            if (!running) return WriteStatus.OVERLOADED;
+            // буфер полон - недолго ждём место, потом отказываем (backpressure)
+            if (!buffer.offer(pending, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) return WriteStatus.OVERLOADED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return WriteStatus.FAILED;
+        } finally {
+            accepting.readLock().unlock();
+        }
+        if (pending.committed() == null) return WriteStatus.ACCEPTED;
+        try {
+            return pending.committed().get(COMMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)
+                    ? WriteStatus.ACCEPTED
+                    : WriteStatus.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return WriteStatus.FAILED;
+        } catch (ExecutionException | TimeoutException e) {
+            return WriteStatus.FAILED;
+        }
+    }
+
+    private void drain() {
+        List<PendingResult> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !buffer.isEmpty()) {
+                PendingResult first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) break;
+                    PendingResult next = buffer.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<PendingResult> batch) {
+        List<ResultInfo> results = new ArrayList<>(batch.size());
+        for (PendingResult pending : batch) results.add(pending.result());
+        boolean saved;
+        try {
+            saved = resultService.saveResultsToDb(results);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error while flushing results", e);
+            saved = false;
+        }
+        if (!saved && durability == Durability.ASYNC) {
+            LOGGER.warning("Lost " + results.size() + " buffered results");
+        }
+        for (PendingResult pending : batch) {
+            if (pending.committed() != null) pending.committed().complete(saved);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (writer == null) return;
+        // новые записи не принимаем (ждём тех, кто уже ставит в буфер), писатель дописывает буфер и выходит
+        accepting.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            accepting.writeLock().unlock();
+        }
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // что писатель не успел забрать, явно проваливаем: group-commit получит FAILED, а не таймаут
+        List<PendingResult> left = new ArrayList<>();
+        buffer.drainTo(left);
+        if (!left.isEmpty()) {
+            LOGGER.warning("Result buffer not drained on shutdown, " + left.size() + " results lost");
+            for (PendingResult pending : left) {
+                if (pending.committed() != null) pending.committed().complete(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.s408766.shooter.utils.services.db;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+
+import javax.sql.DataSource;
+import java.util.logging.Logger;
+
+// Схему ведут версионные миграции из db/migration, hbm2ddl выключен.
+// База, созданная раньше через hbm2ddl=update, без истории Flyway: она считается версией 1 (baseline)
+@Singleton
+@Startup
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+
+    @Resource(lookup = "java:app/jdbc/shooter")
+    private DataSource dataSource;
+
+    @PostConstruct
+    void migrate() {
+        MigrateResult result = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        LOGGER.info(String.format("Schema at version %s, %d migration(s) applied",
+                result.targetSchemaVersion, result.migrationsExecuted));
+    }
+}
@@ -1,44 +1,67 @@
 package ru.s408766.shooter.utils.services.db;
 
+import jakarta.annotation.Resource;
+import jakarta.ejb.SessionContext;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.interceptor.Interceptors;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.Persistence;
-import jakarta.persistence.TypedQuery;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import ru.s408766.shooter.utils.metrics.DbTimingInterceptor;
 import ru.s408766.shooter.utils.models.User;
+import ru.s408766.shooter.utils.models.UserCredentials;
 
 @Stateless
+@Interceptors(DbTimingInterceptor.class)
 public class UserService {
-
-    private static final EntityManager em = Persistence.createEntityManagerFactory("default").createEntityManager();
+    @PersistenceContext(unitName = "default")
+    private EntityManager em;
+    @Resource
+    private SessionContext sessionContext;
 
     public boolean saveUserToDb(User user) {
         try {
-            em.getTransaction().begin();
             em.persist(user);
-            em.getTransaction().commit();
+            em.flush();
             return true;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
+        } catch (PersistenceException e) {
+            sessionContext.setRollbackOnly();
             return false;
         }
     }
 
-    public User findByUsername(String email) {
-        String query = "SELECT u FROM User u WHERE u.email = :email";
-        TypedQuery<User> typedQuery = em.createQuery(query, User.class);
-        typedQuery.setParameter("email", email);
-        return typedQuery.getResultStream().findFirst().orElse(null);
+    // проекция вместо сущности: ни User в контексте, ни его коллекции
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public UserCredentials findCredentials(String email) {
+        return em.createQuery("SELECT new ru.s408766.shooter.utils.models.UserCredentials(u.id, u.email, u.password) " +
+                        "FROM User u WHERE u.email = :email", UserCredentials.class)
+                .setParameter("email", email)
+                // при включённом кэше второго уровня результат берётся из кэша запросов
+                .setHint("org.hibernate.cacheable", true)
+                .getResultStream().findFirst().orElse(null);
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public boolean existsByEmail(String email) {
+        return !em.createQuery("SELECT u.id FROM User u WHERE u.email = :email", Long.class)
+                .setParameter("email", email)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
     }
 
-    public boolean updateUser(User user) {
+    // UPDATE без загрузки сущности; Hibernate сам сбрасывает кэш второго уровня для users
+    public boolean updatePasswordHash(long userId, String passwordHash) {
         try {
-            em.getTransaction().begin();
-            em.merge(user);
-            em.getTransaction().commit();
-            return true;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
+            return em.createQuery("UPDATE User u SET u.password = :password WHERE u.id = :id")
+                    .setParameter("password", passwordHash)
+                    .setParameter("id", userId)
+                    .executeUpdate() == 1;
+        } catch (PersistenceException e) {
+            sessionContext.setRollbackOnly();
             return false;
         }
     }
-}
\ No newline at end of file
+}
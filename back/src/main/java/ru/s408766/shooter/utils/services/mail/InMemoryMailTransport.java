@@ -0,0 +1,37 @@
+package ru.s408766.shooter.utils.services.mail;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Фейковый SMTP для локального запуска и замеров: хранит последнее письмо на адрес
+public class InMemoryMailTransport implements MailTransport {
+    private final long latencyMillis;
+    private final Map<String, OutgoingMail> lastMailByRecipient = new ConcurrentHashMap<>();
+    private final AtomicLong sentCount = new AtomicLong();
+
+    public InMemoryMailTransport(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public void send(OutgoingMail mail) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lastMailByRecipient.put(mail.to(), mail);
+        sentCount.incrementAndGet();
+    }
+
+    public OutgoingMail getLastMail(String recipient) {
+        return lastMailByRecipient.get(recipient);
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.s408766.shooter.utils.services.mail;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.mail.MessagingException;
+import ru.s408766.shooter.utils.ProjectSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Исходящая почта: HTTP-запрос только кладёт письмо в ограниченную очередь,
+// отправляют его фоновые воркеры через MailTransport с повторами
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MailDispatcher {
+    private static final Logger LOGGER = Logger.getLogger(MailDispatcher.class.getName());
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    // сигнал воркеру завершиться, сравнивается по ссылке
+    private static final OutgoingMail STOP = new OutgoingMail(null, null, null);
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private BlockingQueue<OutgoingMail> queue;
+    private MailTransport transport;
+    private final List<Thread> workers = new ArrayList<>();
+
+    @PostConstruct
+    void start() {
+        int workerCount = ProjectSettings.getInt("shooter.mail.workers", 4);
+        queue = new ArrayBlockingQueue<>(ProjectSettings.getInt("shooter.mail.queue-size", 1000));
+        transport = createTransport(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::drain);
+            worker.setName("mail-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private static MailTransport createTransport(int workerCount) {
+        String type = ProjectSettings.get("shooter.mail.transport", "smtp");
+        if ("memory".equals(type)) {
+            return new InMemoryMailTransport(ProjectSettings.getLong("shooter.mail.fake-latency-ms", 0));
+        }
+        String username = ProjectSettings.get("shooter.mail.username", "");
+        try {
+            return new SmtpMailTransport(
+                    ProjectSettings.get("shooter.mail.host", "localhost"),
+                    ProjectSettings.getInt("shooter.mail.port", 587),
+                    username,
+                    ProjectSettings.get("shooter.mail.password", ""),
+                    ProjectSettings.get("shooter.mail.from", username),
+                    workerCount);
+        } catch (MessagingException e) {
+            throw new IllegalStateException("Invalid mail settings", e);
+        }
+    }
+
+    // false - очередь переполнена, письмо не принято
+    public boolean enqueue(OutgoingMail mail) {
+        return queue.offer(mail);
+    }
+
+    public MailTransport getTransport() {
+        return transport;
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                OutgoingMail mail = queue.take();
+                if (mail == STOP) return;
+                deliver(mail);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(OutgoingMail mail) throws InterruptedException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transport.send(mail);
+                return;
+            } catch (MessagingException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    LOGGER.log(Level.WARNING, "Dropping mail to " + mail.to() + " after " + attempt + " attempts", e);
+                    return;
+                }
+                Thread.sleep(backoff);
+                backoff *= 2;
+            } catch (RuntimeException e) {
+                // ошибка не сетевая, повтор не поможет; поток-рассыльщик при этом должен жить дальше,
+                // иначе очередь заполнится и все запросы писем получат 503
+                LOGGER.log(Level.SEVERE, "Dropping mail to " + mail.to() + " after unexpected failure", e);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        // уже принятые письма дорассылаем, STOP встаёт в очередь после них
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                queue.offer(STOP, Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            }
+            for (Thread worker : workers) {
+                worker.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.forEach(Thread::interrupt);
+        if (!queue.isEmpty()) LOGGER.warning("Mail queue not drained on shutdown, " + queue.size() + " mails lost");
+        transport.close();
+    }
+}
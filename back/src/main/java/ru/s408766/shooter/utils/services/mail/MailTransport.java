@@ -0,0 +1,12 @@
+package ru.s408766.shooter.utils.services.mail;
+
+import jakarta.mail.MessagingException;
+
+// Способ доставки письма; вызывается из воркеров MailDispatcher, поэтому должен быть потокобезопасным
+public interface MailTransport extends AutoCloseable {
+    void send(OutgoingMail mail) throws MessagingException;
+
+    @Override
+    default void close() {
+    }
+}
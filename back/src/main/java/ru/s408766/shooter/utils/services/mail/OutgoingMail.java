@@ -0,0 +1,4 @@
+package ru.s408766.shooter.utils.services.mail;
+
+public record OutgoingMail(String to, String subject, String text) {
+}
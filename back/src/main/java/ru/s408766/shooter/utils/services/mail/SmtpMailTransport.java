@@ -0,0 +1,70 @@
+package ru.s408766.shooter.utils.services.mail;
+
+import jakarta.mail.*;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// SMTP с пулом открытых соединений: не делаем TCP + TLS + AUTH на каждое письмо
+public class SmtpMailTransport implements MailTransport {
+    private final Session session;
+    private final String username;
+    private final String password;
+    private final InternetAddress from;
+    private final BlockingQueue<Transport> idleTransports;
+
+    public SmtpMailTransport(String host, int port, String username, String password, String from, int poolSize)
+            throws MessagingException {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", host);
+        properties.put("mail.smtp.port", String.valueOf(port));
+        properties.put("mail.smtp.auth", "true");
+        properties.put("mail.smtp.starttls.enable", "true");
+        properties.put("mail.smtp.connectiontimeout", "10000");
+        properties.put("mail.smtp.timeout", "10000");
+        this.session = Session.getInstance(properties);
+        this.username = username;
+        this.password = password;
+        this.from = new InternetAddress(from);
+        this.idleTransports = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    public void send(OutgoingMail mail) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(from);
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(mail.to()));
+        message.setSubject(mail.subject());
+        message.setText(mail.text());
+
+        Transport transport = idleTransports.poll();
+        if (transport == null) transport = session.getTransport("smtp");
+        try {
+            if (!transport.isConnected()) transport.connect(username, password);
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+            // соединение могло протухнуть - в пул его не возвращаем
+            closeQuietly(transport);
+            transport = null;
+            throw e;
+        } finally {
+            if (transport != null && !idleTransports.offer(transport)) closeQuietly(transport);
+        }
+    }
+
+    @Override
+    public void close() {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) closeQuietly(transport);
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException ignored) {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.s408766.shooter.utils.services.verification;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class InMemoryVerificationCodeStore implements VerificationCodeStore {
+    // code == null - кода нет (использован, сгорел или отозван), но лимиты по email ещё действуют
+    private record Entry(String code, long issuedAt, int failedAttempts, long windowStart, int issuedInWindow) {
+        Entry withCode(String newCode, int newFailedAttempts) {
+            return new Entry(newCode, issuedAt, newFailedAttempts, windowStart, issuedInWindow);
+        }
+    }
+
+    private final VerificationPolicy policy = VerificationPolicy.fromSettings();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public IssueStatus issue(String email, String code) {
+        long now = System.currentTimeMillis();
+        // при переполнении новых адресов не берём, место освободит плановая чистка
+        if (entries.size() >= policy.capacity() && !entries.containsKey(email)) {
+            return IssueStatus.STORE_FULL;
+        }
+        IssueStatus[] status = {IssueStatus.ISSUED};
+        entries.compute(email, (key, entry) -> {
+            if (entry == null || now - entry.windowStart() >= policy.windowMillis()) {
+                return new Entry(code, now, 0, now, 1);
+            }
+            if (now - entry.issuedAt() < policy.resendIntervalMillis()
+                    || entry.issuedInWindow() >= policy.maxCodesPerWindow()) {
+                status[0] = IssueStatus.RATE_LIMITED;
+                return entry;
+            }
+            return new Entry(code, now, 0, entry.windowStart(), entry.issuedInWindow() + 1);
+        });
+        return status[0];
+    }
+
+    @Override
+    public boolean verify(String email, String code) {
+        long now = System.currentTimeMillis();
+        boolean[] verified = {false};
+        entries.computeIfPresent(email, (key, entry) -> {
+            if (entry.code() == null || isCodeExpired(entry, now)) return entry;
+            if (MessageDigest.isEqual(
+                    entry.code().getBytes(StandardCharsets.UTF_8),
+                    code.getBytes(StandardCharsets.UTF_8))) {
+                verified[0] = true;
+                return entry.withCode(null, 0);
+            }
+            int failedAttempts = entry.failedAttempts() + 1;
+            // после maxFailedAttempts неверных попыток код сгорает
+            return entry.withCode(failedAttempts >= policy.maxFailedAttempts() ? null : entry.code(), failedAttempts);
+        });
+        return verified[0];
+    }
+
+    @Override
+    public void revoke(String email) {
+        entries.computeIfPresent(email, (key, entry) -> entry.withCode(null, 0));
+    }
+
+    @Override
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry ->
+                (entry.code() == null || isCodeExpired(entry, now))
+                        && now - entry.windowStart() >= policy.windowMillis()
+                        && now - entry.issuedAt() >= policy.resendIntervalMillis());
+    }
+
+    private boolean isCodeExpired(Entry entry, long now) {
+        return now - entry.issuedAt() > policy.codeTtlMillis();
+    }
+}
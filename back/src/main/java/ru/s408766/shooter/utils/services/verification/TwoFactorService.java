@@ -2,55 +2,56 @@ package ru.s408766.shooter.utils.services.verification;
 
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import ru.s408766.shooter.utils.services.mail.MailDispatcher;
+import ru.s408766.shooter.utils.services.mail.OutgoingMail;
 
 import java.security.SecureRandom;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Stateless
 public class TwoFactorService {
     @Inject
-    private EmailService emailService;
-
-    private final Map<String, TwoFactorToken> verificationCodesStorage = new HashMap<>();
-
-    private static class TwoFactorToken {
-        String code;
-        long creationTime;
-
-        TwoFactorToken(String code, long creationTime) {
-            this.code = code;
-            this.creationTime = creationTime;
-        }
+    private MailDispatcher mailDispatcher;
+    @Inject
+    private VerificationCodeStore verificationCodeStore;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String MAIL_SUBJECT = "Shooter verification code";
+    // срок жизни берётся из тех же настроек, что соблюдает VerificationCodeStore
+    private static final long CODE_TTL_MINUTES =
+            TimeUnit.MILLISECONDS.toMinutes(VerificationPolicy.fromSettings().codeTtlMillis());
+    private static final String MAIL_TEXT = "Your verification code: %s\nIt expires in "
+            + CODE_TTL_MINUTES + (CODE_TTL_MINUTES == 1 ? " minute." : " minutes.");
+
+    public enum CodeRequestStatus {
+        SENT,
+        RATE_LIMITED,
+        UNAVAILABLE
     }
 
     private String generateVerificationCode() {
-        SecureRandom random = new SecureRandom();
-        return String.format("%06d", random.nextInt(999999));
+        return String.format("%06d", RANDOM.nextInt(999999));
     }
 
-    public String generateAndSendCode(String userEmail) {
+    public CodeRequestStatus generateAndSendCode(String userEmail) {
         String code = generateVerificationCode();
-        TwoFactorToken token = new TwoFactorToken(code, System.currentTimeMillis());
-        verificationCodesStorage.put(userEmail, token);
-        emailService.sendVerificationCode(userEmail, code);
-        return code;
-    }
-
-    private boolean isTokenExpired(TwoFactorToken token) {
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - token.creationTime) > TimeUnit.MINUTES.toMillis(15);
+        switch (verificationCodeStore.issue(userEmail, code)) {
+            case RATE_LIMITED:
+                return CodeRequestStatus.RATE_LIMITED;
+            case STORE_FULL:
+                return CodeRequestStatus.UNAVAILABLE;
+            default:
+                break;
+        }
+        // письмо уходит в фоне; если очередь забита - код отзываем
+        if (!mailDispatcher.enqueue(new OutgoingMail(userEmail, MAIL_SUBJECT, String.format(MAIL_TEXT, code)))) {
+            verificationCodeStore.revoke(userEmail);
+            return CodeRequestStatus.UNAVAILABLE;
+        }
+        return CodeRequestStatus.SENT;
     }
 
     public boolean verifyCode(String userEmail, String inputCode) {
-        TwoFactorToken storedToken = verificationCodesStorage.get(userEmail);
-        if (storedToken == null ||
-                !storedToken.code.equals(inputCode) ||
-                isTokenExpired(storedToken)) {
-            return false;
-        }
-        verificationCodesStorage.remove(userEmail);
-        return true;
+        return verificationCodeStore.verify(userEmail, inputCode);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package ru.s408766.shooter.utils.services.verification;
+
+// Хранилище кодов подтверждения. По умолчанию - InMemoryVerificationCodeStore;
+// для нескольких узлов за балансировщиком подключается общий бэкенд (например, таблица в PostgreSQL):
+// бин, реализующий этот интерфейс и помеченный @Alternative @Priority, заменит реализацию по умолчанию.
+// Реализация сама атомарно соблюдает VerificationPolicy: срок жизни, попытки, лимиты и ёмкость.
+public interface VerificationCodeStore {
+    enum IssueStatus {
+        ISSUED,
+        RATE_LIMITED,
+        STORE_FULL
+    }
+
+    IssueStatus issue(String email, String code);
+
+    // код одноразовый: успешная проверка его гасит, неверные попытки считаются
+    boolean verify(String email, String code);
+
+    // отозвать выданный код, например если письмо так и не ушло
+    void revoke(String email);
+
+    void evictExpired();
+}
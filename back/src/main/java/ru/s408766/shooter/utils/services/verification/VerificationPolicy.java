@@ -0,0 +1,24 @@
+package ru.s408766.shooter.utils.services.verification;
+
+import ru.s408766.shooter.utils.ProjectSettings;
+
+import java.util.concurrent.TimeUnit;
+
+public record VerificationPolicy(
+        long codeTtlMillis,
+        int maxFailedAttempts,
+        long resendIntervalMillis,
+        long windowMillis,
+        int maxCodesPerWindow,
+        int capacity) {
+
+    public static VerificationPolicy fromSettings() {
+        return new VerificationPolicy(
+                TimeUnit.MINUTES.toMillis(ProjectSettings.getLong("shooter.2fa.ttl-minutes", 15)),
+                ProjectSettings.getInt("shooter.2fa.max-attempts", 5),
+                TimeUnit.SECONDS.toMillis(ProjectSettings.getLong("shooter.2fa.resend-interval-seconds", 60)),
+                TimeUnit.HOURS.toMillis(1),
+                ProjectSettings.getInt("shooter.2fa.max-codes-per-hour", 5),
+                ProjectSettings.getInt("shooter.2fa.capacity", 100_000));
+    }
+}
@@ -0,0 +1,19 @@
+-- Схема в том виде, в каком её создавал hbm2ddl=update
+CREATE TABLE IF NOT EXISTS users
+(
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS resultInfos
+(
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    shotX         FLOAT(53)    NOT NULL,
+    shotY         FLOAT(53)    NOT NULL,
+    shapeRadius   FLOAT(53)    NOT NULL,
+    result        BOOLEAN      NOT NULL,
+    timestamp     TIMESTAMP(6) NOT NULL,
+    executionTime BIGINT       NOT NULL,
+    user_id       BIGINT       NOT NULL REFERENCES users (id)
+);
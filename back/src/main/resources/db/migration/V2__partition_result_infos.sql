@@ -0,0 +1,48 @@
+-- resultInfos делится хешем по user_id: все выстрелы пользователя лежат в одной секции,
+-- запросы и очистка по user_id трогают одну секцию и идут по индексу (user_id, ...)
+
+-- id больше не identity: на секционированной таблице значение берётся из общей последовательности.
+-- Сначала снимаем identity - её неявная последовательность называется так же, resultinfos_id_seq
+ALTER TABLE resultInfos ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE resultInfos_id_seq;
+SELECT setval('resultInfos_id_seq', COALESCE((SELECT MAX(id) FROM resultInfos), 0) + 1, false);
+
+ALTER TABLE resultInfos RENAME TO resultInfos_legacy;
+
+CREATE TABLE resultInfos
+(
+    id            BIGINT       NOT NULL DEFAULT nextval('resultInfos_id_seq'),
+    shotX         FLOAT(53)    NOT NULL,
+    shotY         FLOAT(53)    NOT NULL,
+    shapeRadius   FLOAT(53)    NOT NULL,
+    result        BOOLEAN      NOT NULL,
+    timestamp     TIMESTAMP(6) NOT NULL,
+    executionTime BIGINT       NOT NULL,
+    user_id       BIGINT       NOT NULL REFERENCES users (id),
+    -- ключ секционирования обязан входить в первичный ключ; заодно это индекс для keyset-страниц по id
+    PRIMARY KEY (user_id, id)
+) PARTITION BY HASH (user_id);
+
+DO
+$$
+    BEGIN
+        FOR i IN 0..15
+            LOOP
+                EXECUTE format('CREATE TABLE resultInfos_p%s PARTITION OF resultInfos ' ||
+                               'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+            END LOOP;
+    END
+$$;
+
+-- статистика по времени (date_trunc по timestamp в пределах пользователя)
+CREATE INDEX resultInfos_user_timestamp_idx ON resultInfos (user_id, timestamp);
+
+INSERT INTO resultInfos (id, shotX, shotY, shapeRadius, result, timestamp, executionTime, user_id)
+SELECT id, shotX, shotY, shapeRadius, result, timestamp, executionTime, user_id
+FROM resultInfos_legacy;
+
+DROP TABLE resultInfos_legacy;
+
+ALTER SEQUENCE resultInfos_id_seq OWNED BY resultInfos.id;
+
+ANALYZE resultInfos;
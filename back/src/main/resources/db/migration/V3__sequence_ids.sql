@@ -0,0 +1,9 @@
+-- Hibernate берёт id из последовательностей пачками по allocationSize = 50 (оптимизатор pooled):
+-- шаг последовательности должен совпадать, а следующее значение - быть не меньше MAX(id) + 50
+ALTER SEQUENCE resultInfos_id_seq INCREMENT BY 50;
+SELECT setval('resultInfos_id_seq', COALESCE((SELECT MAX(id) FROM resultInfos), 0) + 50, false);
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE users_id_seq INCREMENT BY 50 OWNED BY users.id;
+SELECT setval('users_id_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 50, false);
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_id_seq');
@@ -0,0 +1,26 @@
+package ru.s408766.shooter.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProjectSettingsTest {
+    @Test
+    void envNameIsShellSafe() {
+        assertEquals("SHOOTER_MAIL_QUEUE_SIZE", ProjectSettings.envName("shooter.mail.queue-size"));
+        assertEquals("SHOOTER_RESULTS_FLUSH_INTERVAL_MS", ProjectSettings.envName("shooter.results.flush-interval-ms"));
+    }
+
+    @Test
+    void envNameDoesNotDependOnDefaultLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals("SHOOTER_PASSWORD_PBKDF2_ITERATIONS", ProjectSettings.envName("shooter.password.pbkdf2-iterations"));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+}
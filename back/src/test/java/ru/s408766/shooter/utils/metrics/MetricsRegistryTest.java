@@ -0,0 +1,67 @@
+package ru.s408766.shooter.utils.metrics;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+    @Path("/test")
+    static class TestResource {
+        @GET
+        @Path("/first")
+        public void first() {
+        }
+
+        @POST
+        @Path("/second")
+        public void second() {
+        }
+    }
+
+    private static String familyOf(String line) {
+        if (line.startsWith("# TYPE ")) return line.split(" ")[2];
+        String metric = line.substring(0, line.indexOf('{'));
+        for (String suffix : new String[]{"_bucket", "_sum", "_count"}) {
+            if (metric.endsWith(suffix)) return metric.substring(0, metric.length() - suffix.length());
+        }
+        return metric;
+    }
+
+    @Test
+    void familiesAreWrittenContiguouslyAfterTheirType() throws NoSuchMethodException {
+        MetricsRegistry registry = new MetricsRegistry();
+        for (String method : new String[]{"first", "second"}) {
+            RequestTimings timings = RequestTimings.start();
+            RequestTimings.add(RequestPhase.DB, 1_000_000);
+            RequestTimings.bind(null);
+            registry.forMethod(TestResource.class.getMethod(method)).recordRequest(timings, 200);
+        }
+        registry.forMethod(null).recordRequest(null, 404);
+
+        StringBuilder out = new StringBuilder();
+        registry.writePrometheus(out);
+
+        List<String> order = new ArrayList<>();
+        Set<String> typed = new HashSet<>();
+        for (String line : out.toString().split("\n")) {
+            String family = familyOf(line);
+            if (line.startsWith("# TYPE ")) {
+                assertTrue(typed.add(family), () -> "duplicate TYPE for " + family);
+            } else {
+                assertTrue(typed.contains(family), () -> "sample before TYPE: " + line);
+            }
+            if (order.isEmpty() || !order.get(order.size() - 1).equals(family)) order.add(family);
+        }
+        assertEquals(List.of("shooter_request_duration_seconds", "shooter_request_phase_duration_seconds",
+                "shooter_responses_total"), order);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.s408766.shooter.utils.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RequestTimingsTest {
+    @Test
+    void propagateMovesTimingsOffTheContainerThread() throws Exception {
+        RequestTimings timings = RequestTimings.start();
+        Supplier<RequestTimings> task = RequestTimings.propagate(() -> {
+            RequestTimings.add(RequestPhase.DB, 5);
+            return RequestTimings.current();
+        });
+        // следующий запрос на этом потоке пула не должен писать в чужие замеры
+        assertNull(RequestTimings.current());
+
+        assertSame(timings, CompletableFuture.supplyAsync(task).get());
+        assertEquals(5, timings.getPhaseNanos(RequestPhase.DB));
+    }
+}
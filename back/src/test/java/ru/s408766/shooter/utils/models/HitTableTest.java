@@ -0,0 +1,54 @@
+package ru.s408766.shooter.utils.models;
+
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.ProjectConstants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HitTableTest {
+    private static final int MIN_COLUMN = (int) Math.round(ProjectConstants.MIN_X * HitTable.SCALE);
+    private static final int MAX_COLUMN = (int) Math.round(ProjectConstants.MAX_X * HitTable.SCALE);
+    private static final int MIN_ROW = (int) Math.round(ProjectConstants.MIN_Y * HitTable.SCALE);
+    private static final int MAX_ROW = (int) Math.round(ProjectConstants.MAX_Y * HitTable.SCALE);
+
+    // каждая точка сетки, как double из "0.3" и как float 0.3f, расширенный до double
+    @Test
+    void everyGridPointMatchesAnalyticCheck() {
+        for (double radius : ProjectConstants.R_VALUES) {
+            int radiusIndex = Shape.radiusIndex(radius);
+            for (int row = MIN_ROW; row <= MAX_ROW; row++) {
+                for (int column = MIN_COLUMN; column <= MAX_COLUMN; column++) {
+                    double x = (double) column / HitTable.SCALE;
+                    double y = (double) row / HitTable.SCALE;
+                    boolean expected = Shape.contains(x, y, radius / 2, radius);
+
+                    int cell = HitTable.cell(x, y);
+                    assertNotEquals(HitTable.OFF_GRID, cell, () -> "(" + x + ", " + y + ") is off the grid");
+                    assertEquals(expected, HitTable.hit(radiusIndex, cell),
+                            () -> "table differs at (" + x + ", " + y + "), r=" + radius);
+
+                    // float рядом с точкой сетки: если таблица его принимает, её бит обязан совпасть с аналитикой
+                    double fx = (float) x;
+                    double fy = (float) y;
+                    int floatCell = HitTable.cell(fx, fy);
+                    if (floatCell != HitTable.OFF_GRID) {
+                        assertEquals(Shape.contains(fx, fy, radius / 2, radius), HitTable.hit(radiusIndex, floatCell),
+                                () -> "table differs at float (" + fx + ", " + fy + "), r=" + radius);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void pointsOffTheGridAreNotLookedUp() {
+        assertEquals(HitTable.OFF_GRID, HitTable.cell(0.35, 0.1));
+        assertEquals(HitTable.OFF_GRID, HitTable.cell(0.1, 0.1234));
+        assertEquals(HitTable.OFF_GRID, HitTable.cell(Double.NaN, 0));
+        assertEquals(HitTable.OFF_GRID, HitTable.cell(ProjectConstants.MAX_X + 0.1, 0));
+        assertEquals(HitTable.OFF_GRID, HitTable.cell(0, Double.NEGATIVE_INFINITY));
+        // на границе треугольника при r=1: в точке (0.3, -0.2) попадание, в 0.3f, -0.2f - уже нет
+        assertEquals(HitTable.OFF_GRID, HitTable.cell(0.3f, -0.2f));
+    }
+}
@@ -0,0 +1,91 @@
+package ru.s408766.shooter.utils.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultArchiveTest {
+    private static ResultView row(long id) {
+        return new ResultView(id, id / 100.0, -id / 100.0, 2, id % 2 == 0, id, new Date(1_700_000_000_000L + id));
+    }
+
+    private static ResultArchive archiveOf(long... ids) {
+        ByteBuffer buffer = ByteBuffer.allocate(ids.length * ResultArchive.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long id : ids) ResultArchive.encode(buffer, row(id));
+        return new ResultArchive(buffer.flip());
+    }
+
+    private static List<ResultView> rows(long... ids) {
+        return LongStream.of(ids).mapToObj(ResultArchiveTest::row).toList();
+    }
+
+    private static long[] ids(List<ResultView> views) {
+        return views.stream().mapToLong(ResultView::id).toArray();
+    }
+
+    private static long[] merged(ResultArchive archive, Long after, List<ResultView> table) {
+        List<ResultView> out = new ArrayList<>();
+        archive.forEachAfter(after, table.iterator(), out::add);
+        return ids(out);
+    }
+
+    @Test
+    void recordsRoundTrip() {
+        ResultArchive archive = archiveOf(100, 101);
+        ResultView expected = row(101);
+        ResultView actual = archive.view(1);
+        assertEquals(expected.id(), actual.id());
+        assertEquals((float) expected.x(), (float) actual.x());
+        assertEquals(expected.isHit(), actual.isHit());
+        assertEquals(expected.startTime(), actual.startTime());
+        assertEquals(101, archive.lastId());
+    }
+
+    @Test
+    void containsFindsOnlyArchivedIds() {
+        ResultArchive archive = archiveOf(100, 105, 151);
+        assertTrue(archive.contains(105));
+        assertFalse(archive.contains(104));
+        assertFalse(archive.contains(200));
+        assertFalse(ResultArchive.EMPTY.contains(1));
+    }
+
+    @Test
+    void tableRowsBelowLastArchivedIdAreMergedInOrder() {
+        // 120 закоммичена после переноса 100..151 и осталась в таблице
+        ResultArchive archive = archiveOf(100, 110, 151);
+        List<ResultView> table = rows(120, 160, 170);
+        assertArrayEquals(new long[]{100, 110, 120, 151, 160, 170}, merged(archive, null, table));
+        assertArrayEquals(new long[]{120, 151, 160, 170}, merged(archive, 110L, rows(120, 160, 170)));
+        assertArrayEquals(new long[]{100, 110, 120}, ids(archive.page(null, table, 3)));
+        assertArrayEquals(new long[]{151, 160}, ids(archive.page(120L, rows(160, 170), 2)));
+    }
+
+    @Test
+    void idInBothTiersIsReturnedOnce() {
+        // перенос записал 110 в файл, но не успел удалить строку
+        ResultArchive archive = archiveOf(100, 110);
+        assertArrayEquals(new long[]{100, 110, 120}, merged(archive, null, rows(110, 120)));
+        assertArrayEquals(new long[]{100, 110, 120}, ids(archive.page(null, rows(110, 120), 10)));
+    }
+
+    @Test
+    void recordsSliceCopiesRawRecords() {
+        ResultArchive archive = archiveOf(100, 110, 151);
+        ResultArchive tail = new ResultArchive(ByteBuffer.allocate(2 * ResultArchive.RECORD_BYTES)
+                .put(archive.records(1, 3)).flip());
+        assertEquals(2, tail.count());
+        assertEquals(110, tail.id(0));
+        assertEquals(151, tail.lastId());
+    }
+}
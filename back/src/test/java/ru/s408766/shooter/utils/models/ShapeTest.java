@@ -0,0 +1,83 @@
+package ru.s408766.shooter.utils.models;
+
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.ProjectConstants;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShapeTest {
+    private static final int POINTS = 200_000;
+
+    // исходная проверка Shape.containsPoint до перехода на квадраты расстояний
+    private static boolean legacyContains(double x, double y, double radius) {
+        if (x <= 0 && y > 0) {
+            return y <= Math.sqrt(Math.pow(radius / 2, 2) - Math.pow(x, 2));
+        } else if (x <= 0 && y <= 0) {
+            return x >= -radius / 2 && y >= -radius;
+        } else if (x > 0 && y <= 0) {
+            return y >= x - radius / 2;
+        } else {
+            return false;
+        }
+    }
+
+    private static double[] randomColumn(Random random, double min, double max) {
+        double[] column = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) column[i] = min + random.nextDouble() * (max - min);
+        return column;
+    }
+
+    @Test
+    void allPathsMatchLegacyCheckOnRandomPoints() {
+        Random random = new Random(408766);
+        double[] xs = randomColumn(random, ProjectConstants.MIN_X, ProjectConstants.MAX_X);
+        double[] ys = randomColumn(random, ProjectConstants.MIN_Y, ProjectConstants.MAX_Y);
+        for (double radius : ProjectConstants.R_VALUES) {
+            Shape shape = new Shape(radius);
+            boolean[] expected = new boolean[POINTS];
+            boolean[] bulk = new boolean[POINTS];
+            Shape.hit(xs, ys, radius, bulk);
+            for (int i = 0; i < POINTS; i++) {
+                expected[i] = legacyContains(xs[i], ys[i], radius);
+                assertEquals(expected[i], shape.containsPoint(new Point(xs[i], ys[i])),
+                        () -> "containsPoint differs for r=" + radius);
+                assertEquals(expected[i], Shape.hit(xs[i], ys[i], radius), () -> "hit differs for r=" + radius);
+            }
+            assertArrayEquals(expected, bulk, () -> "bulk hit differs for r=" + radius);
+        }
+    }
+
+    @Test
+    void bulkHitWithPerPointRadiiMatchesLegacyCheck() {
+        Random random = new Random(17);
+        double[] xs = randomColumn(random, ProjectConstants.MIN_X, ProjectConstants.MAX_X);
+        double[] ys = randomColumn(random, ProjectConstants.MIN_Y, ProjectConstants.MAX_Y);
+        double[] radii = new double[POINTS];
+        boolean[] expected = new boolean[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            radii[i] = ProjectConstants.R_VALUES[random.nextInt(ProjectConstants.R_VALUES.length)];
+            expected[i] = legacyContains(xs[i], ys[i], radii[i]);
+        }
+        boolean[] out = new boolean[POINTS];
+        Shape.hit(xs, ys, radii, out);
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    void bulkHitRejectsMismatchedColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Shape.hit(new double[3], new double[2], 1, new boolean[3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> Shape.hit(new double[3], new double[3], 1, new boolean[4]));
+        assertThrows(IllegalArgumentException.class,
+                () -> Shape.hit(new double[3], new double[3], new double[]{1, 1}, new boolean[3]));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> Shape.hit(new double[4], new double[2], 0, 4, 1, new boolean[4]));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> Shape.hit(new double[4], new double[4], 2, 1, 1, new boolean[4]));
+    }
+}
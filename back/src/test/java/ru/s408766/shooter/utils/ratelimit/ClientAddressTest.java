@@ -0,0 +1,56 @@
+package ru.s408766.shooter.utils.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClientAddressTest {
+    @Test
+    void remoteIgnoresHeaders() {
+        ClientAddress address = new ClientAddress(ClientAddress.Source.REMOTE, List.of());
+        assertNull(address.header());
+        assertEquals("10.0.0.1", address.resolve("10.0.0.1", List.of("203.0.113.7")));
+    }
+
+    @Test
+    void singleProxyTakesRightmostEntry() {
+        ClientAddress address = new ClientAddress(ClientAddress.Source.X_FORWARDED_FOR, List.of());
+        assertEquals("X-Forwarded-For", address.header());
+        // левую часть клиент прислал сам, правую дописал прокси
+        assertEquals("203.0.113.7", address.resolve("10.0.0.1", List.of("1.2.3.4, 203.0.113.7")));
+        assertEquals("10.0.0.1", address.resolve("10.0.0.1", null));
+    }
+
+    @Test
+    void trustedProxiesAreSkippedFromTheRight() {
+        ClientAddress address = new ClientAddress(ClientAddress.Source.X_FORWARDED_FOR,
+                List.of("10.0.0.0/8", "192.168.1.5"));
+        assertEquals("203.0.113.7",
+                address.resolve("10.1.2.3", List.of("1.2.3.4, 203.0.113.7", "192.168.1.5, 10.9.9.9")));
+        // заголовок от недоверенного собеседника не читается
+        assertEquals("198.51.100.1", address.resolve("198.51.100.1", List.of("203.0.113.7")));
+        // вся цепочка из прокси - берём самый левый адрес
+        assertEquals("10.0.0.2", address.resolve("10.0.0.1", List.of("10.0.0.2, 10.0.0.3")));
+    }
+
+    @Test
+    void forwardedHeaderIsParsed() {
+        ClientAddress address = new ClientAddress(ClientAddress.Source.FORWARDED, List.of("10.0.0.0/8", "fd00::/8"));
+        assertEquals("Forwarded", address.header());
+        assertEquals("2001:db8:cafe::17", address.resolve("10.0.0.1",
+                List.of("for=192.0.2.43, for=\"[2001:db8:cafe::17]:4711\";proto=https", "For=\"[fd00::1]\"")));
+        assertEquals("192.0.2.60", address.resolve("10.0.0.1", List.of("proto=http;for=\"192.0.2.60:8080\";by=10.0.0.1")));
+    }
+
+    @Test
+    void invalidProxyListFails() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientAddress(ClientAddress.Source.X_FORWARDED_FOR, List.of("proxy.example.com")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientAddress(ClientAddress.Source.X_FORWARDED_FOR, List.of("10.0.0.0/33")));
+    }
+}
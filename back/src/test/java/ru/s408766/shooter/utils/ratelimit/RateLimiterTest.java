@@ -0,0 +1,56 @@
+package ru.s408766.shooter.utils.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+    @Test
+    void burstIsAllowedThenRejected() {
+        RateLimiter.Limit limit = new RateLimiter.Limit("test", RateLimit.Key.IP, 1, 3);
+        for (int i = 0; i < 3; i++) assertEquals(0, limit.tryAcquire("a"));
+        assertTrue(limit.tryAcquire("a") > 0);
+        assertEquals(0, limit.tryAcquire("b"));
+        assertEquals(1, limit.getRejected());
+    }
+
+    @Test
+    void rejectedRequestDoesNotSpendOtherLimits() {
+        RateLimiter.Limit ip = new RateLimiter.Limit("ip", RateLimit.Key.IP, 1, 3);
+        RateLimiter.Limit email = new RateLimiter.Limit("email", RateLimit.Key.EMAIL, 1, 1);
+        List<RateLimiter.Limit> limits = List.of(ip, email);
+
+        assertEquals(0, RateLimiter.tryAcquireAll(limits, new String[]{"10.0.0.1", "a@b.c"}));
+        // email исчерпан: отказ не должен списывать токены с корзины IP
+        for (int i = 0; i < 5; i++) {
+            assertTrue(RateLimiter.tryAcquireAll(limits, new String[]{"10.0.0.1", "a@b.c"}) > 0);
+        }
+        assertEquals(0, RateLimiter.tryAcquireAll(limits, new String[]{"10.0.0.1", "d@e.f"}));
+        assertEquals(0, RateLimiter.tryAcquireAll(limits, new String[]{"10.0.0.1", "g@h.i"}));
+        assertTrue(ip.tryAcquire("10.0.0.1") > 0);
+        assertEquals(5, email.getRejected());
+        assertEquals(1, ip.getRejected());
+    }
+
+    @Test
+    void releaseReturnsTakenToken() {
+        // так tryAcquireAll откатывает взятое, если токен другой корзины увели между проверкой и взятием
+        RateLimiter.Limit ip = new RateLimiter.Limit("ip", RateLimit.Key.IP, 1, 1);
+        assertEquals(0, ip.tryAcquire("10.0.0.1"));
+        assertTrue(ip.check("10.0.0.1") > 0);
+        ip.release("10.0.0.1");
+        assertEquals(0, ip.check("10.0.0.1"));
+        assertEquals(0, ip.tryAcquire("10.0.0.1"));
+        assertTrue(ip.tryAcquire("10.0.0.1") > 0);
+    }
+
+    @Test
+    void missingKeySkipsLimit() {
+        RateLimiter.Limit user = new RateLimiter.Limit("user", RateLimit.Key.USER, 1, 1);
+        for (int i = 0; i < 3; i++) assertEquals(0, RateLimiter.tryAcquireAll(List.of(user), new String[]{null}));
+        assertEquals(0, user.getTrackedKeys());
+    }
+}
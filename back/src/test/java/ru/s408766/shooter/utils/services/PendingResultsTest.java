@@ -0,0 +1,39 @@
+package ru.s408766.shooter.utils.services;
+
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.models.ResultInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.s408766.shooter.utils.services.StubResultService.USER_ID;
+import static ru.s408766.shooter.utils.services.StubResultService.committed;
+
+class PendingResultsTest {
+    @Test
+    void eventsDuringLoadAreAppliedOnceRegardlessOfIdOrder() {
+        // пул id: 151 закоммичен раньше 120, запрос загрузки видит 100 и 151, но не 120
+        ResultInfo seenByLoad = committed(151, -0.5, -0.5);
+        ResultInfo missedByLoad = committed(120, -0.25, -0.25);
+        PendingResults pending = new PendingResults();
+        StubResultService resultService = new StubResultService(List.of(committed(100, -1, -1).toView(), seenByLoad.toView()),
+                () -> {
+                    assertTrue(pending.defer(seenByLoad));
+                    assertTrue(pending.defer(missedByLoad));
+                }, 0);
+
+        List<Long> loaded = new ArrayList<>();
+        List<Long> arrived = new ArrayList<>();
+        pending.load(resultService, USER_ID, result -> loaded.add(result.id()), result -> arrived.add(result.getId()));
+        assertEquals(List.of(100L, 151L), loaded);
+        assertEquals(List.of(120L), arrived);
+
+        // после загрузки событие применяет сам наблюдатель, даже с id меньше уже прочитанных
+        assertTrue(pending.isLoaded());
+        assertFalse(pending.defer(committed(110, 0.5, -0.5)));
+    }
+
+}
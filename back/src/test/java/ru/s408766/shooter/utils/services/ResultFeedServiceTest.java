@@ -0,0 +1,113 @@
+package ru.s408766.shooter.utils.services;
+
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultFeedServiceTest {
+    // broadcaster без рантайма: запоминает обработчики, чтобы тест сам "ронял" соединения
+    private static final class StubBroadcaster implements SseBroadcaster {
+        private final List<Consumer<SseEventSink>> onClose = new ArrayList<>();
+        private final List<BiConsumer<SseEventSink, Throwable>> onError = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void onError(BiConsumer<SseEventSink, Throwable> onError) {
+            this.onError.add(onError);
+        }
+
+        @Override
+        public void onClose(Consumer<SseEventSink> onClose) {
+            this.onClose.add(onClose);
+        }
+
+        @Override
+        public void register(SseEventSink sseEventSink) {
+        }
+
+        @Override
+        public CompletionStage<?> broadcast(OutboundSseEvent event) {
+            if (closed) throw new IllegalStateException("closed");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            close(true);
+        }
+
+        @Override
+        public void close(boolean cascading) {
+            closed = true;
+        }
+
+        void fail(SseEventSink sink) {
+            onError.forEach(handler -> handler.accept(sink, new RuntimeException("broken pipe")));
+        }
+
+        void disconnect(SseEventSink sink) {
+            onClose.forEach(handler -> handler.accept(sink));
+        }
+    }
+
+    private static final List<StubBroadcaster> broadcasters = new ArrayList<>();
+
+    private static final Sse SSE = (Sse) Proxy.newProxyInstance(Sse.class.getClassLoader(), new Class<?>[]{Sse.class},
+            (proxy, method, args) -> {
+                if (!method.getName().equals("newBroadcaster")) throw new UnsupportedOperationException(method.getName());
+                StubBroadcaster broadcaster = new StubBroadcaster();
+                broadcasters.add(broadcaster);
+                return broadcaster;
+            });
+
+    private static SseEventSink sink() {
+        return (SseEventSink) Proxy.newProxyInstance(SseEventSink.class.getClassLoader(),
+                new Class<?>[]{SseEventSink.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    @Test
+    void errorAndCloseOfOneSinkReleaseItOnce() {
+        broadcasters.clear();
+        ResultFeedService service = new ResultFeedService();
+        SseEventSink first = sink();
+        SseEventSink second = sink();
+        service.subscribe(1, first, SSE);
+        service.subscribe(1, second, SSE);
+        assertEquals(1, broadcasters.size());
+        StubBroadcaster broadcaster = broadcasters.get(0);
+        assertEquals(2, service.getConnectionCount());
+
+        // запись упала, потом рантайм закрыл тот же sink
+        broadcaster.fail(first);
+        broadcaster.disconnect(first);
+        assertEquals(1, service.getConnectionCount());
+        assertFalse(broadcaster.closed);
+
+        broadcaster.disconnect(second);
+        assertEquals(0, service.getConnectionCount());
+        assertTrue(broadcaster.closed);
+
+        service.subscribe(1, sink(), SSE);
+        assertEquals(1, service.getConnectionCount());
+        assertNotSame(broadcaster, broadcasters.get(broadcasters.size() - 1));
+    }
+}
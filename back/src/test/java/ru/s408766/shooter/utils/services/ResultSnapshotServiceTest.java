@@ -0,0 +1,55 @@
+package ru.s408766.shooter.utils.services;
+
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.events.ResultsAddedEvent;
+import ru.s408766.shooter.utils.models.ResultColumns;
+import ru.s408766.shooter.utils.models.ResultView;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.s408766.shooter.utils.services.StubResultService.USER_ID;
+import static ru.s408766.shooter.utils.services.StubResultService.committed;
+
+class ResultSnapshotServiceTest {
+    private static float[] xs(ResultColumns.Slice slice) {
+        return Arrays.copyOfRange(slice.xs(), slice.from(), slice.to());
+    }
+
+    @Test
+    void deltaHasOnlyResultsAfterVersion() throws ReflectiveOperationException {
+        List<ResultView> rows = List.of(committed(100, -1, 0).toView(), committed(101, -0.5, 0).toView());
+        ResultSnapshotService service = new StubResultService(rows, () -> {
+        }, 0).injectInto(new ResultSnapshotService());
+
+        ResultSnapshotService.Delta full = service.getDelta(USER_ID, null);
+        assertTrue(full.reset());
+        assertArrayEquals(new float[]{-1, -0.5f}, xs(full.results()));
+
+        service.onResultsAdded(new ResultsAddedEvent(List.of(committed(110, 0.5, 0))));
+        ResultSnapshotService.Delta delta = service.getDelta(USER_ID, full.version());
+        assertFalse(delta.reset());
+        assertArrayEquals(new float[]{0.5f}, xs(delta.results()));
+
+        // версия чужой эпохи - всё заново
+        assertTrue(service.getDelta(USER_ID, full.version() + (1L << 32)).reset());
+    }
+
+    @Test
+    void failedLoadIsRetriedFromScratch() throws ReflectiveOperationException {
+        List<ResultView> rows = List.of(committed(100, -1, 0).toView(), committed(101, -0.5, 0).toView());
+        ResultSnapshotService service = new StubResultService(rows, () -> {
+        }, 1).injectInto(new ResultSnapshotService());
+
+        assertThrows(IllegalStateException.class, () -> service.getDelta(USER_ID, null));
+        // недостроенный снимок выброшен: события до следующего чтения в него не копятся
+        service.onResultsAdded(new ResultsAddedEvent(List.of(committed(102, 0.5, 0))));
+        ResultSnapshotService.Delta full = service.getDelta(USER_ID, null);
+        assertEquals(2, full.results().size());
+    }
+}
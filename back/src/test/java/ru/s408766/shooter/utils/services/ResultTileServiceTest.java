@@ -0,0 +1,27 @@
+package ru.s408766.shooter.utils.services;
+
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.events.ResultsAddedEvent;
+import ru.s408766.shooter.utils.models.ResultView;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static ru.s408766.shooter.utils.services.StubResultService.USER_ID;
+import static ru.s408766.shooter.utils.services.StubResultService.committed;
+
+class ResultTileServiceTest {
+    @Test
+    void loadedRowsAndLaterEventsAreSummedIntoBlocks() throws ReflectiveOperationException {
+        List<ResultView> rows = List.of(committed(100, -1, -1).toView(), committed(101, -0.5, -0.5).toView());
+        ResultTileService service = new StubResultService(rows, () -> {
+        }, 0).injectInto(new ResultTileService());
+
+        // сетка 2x2: строка 0 - нижняя половина области, столбец 0 - левая
+        assertArrayEquals(new int[]{2, 0, 0, 0}, service.getTiles(USER_ID, 2, 2).totals());
+
+        service.onResultsAdded(new ResultsAddedEvent(List.of(committed(110, 0.5, 0.5))));
+        assertArrayEquals(new int[]{2, 0, 0, 1}, service.getTiles(USER_ID, 2, 2).totals());
+        assertArrayEquals(new int[]{3}, service.getTiles(USER_ID, 2, 1).totals());
+    }
+}
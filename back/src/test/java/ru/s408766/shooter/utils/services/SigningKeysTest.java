@@ -0,0 +1,36 @@
+package ru.s408766.shooter.utils.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SigningKeysTest {
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void clearSettings() {
+        System.clearProperty("shooter.jwt.key-file");
+    }
+
+    @Test
+    void generatedKeyFileIsReadableByOwnerOnly() throws Exception {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path keyFile = directory.resolve("keys").resolve("shooter-jwt.key");
+        System.setProperty("shooter.jwt.key-file", keyFile.toString());
+
+        SecretKey generated = SigningKeys.load();
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(keyFile)));
+        // следующий запуск читает тот же ключ
+        assertArrayEquals(generated.getEncoded(), SigningKeys.load().getEncoded());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.s408766.shooter.utils.services;
+
+import ru.s408766.shooter.utils.models.ResultInfo;
+import ru.s408766.shooter.utils.models.ResultView;
+import ru.s408766.shooter.utils.models.User;
+import ru.s408766.shooter.utils.services.db.ResultService;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+// БД без контейнера: отдаёт заданные строки, посреди чтения "коммитит" другие выстрелы
+// и первые failures раз после этого обрывает чтение
+final class StubResultService extends ResultService {
+    static final long USER_ID = 7;
+
+    private final List<ResultView> rows;
+    private final Runnable duringLoad;
+    private int failuresLeft;
+
+    StubResultService(List<ResultView> rows, Runnable duringLoad, int failures) {
+        this.rows = rows;
+        this.duringLoad = duringLoad;
+        this.failuresLeft = failures;
+    }
+
+    static ResultInfo committed(long id, double x, double y) {
+        User user = new User();
+        user.setId(USER_ID);
+        ResultInfo result = new ResultInfo(x, y, 2, true, new Date(), 0);
+        result.setId(id);
+        result.setUser(user);
+        return result;
+    }
+
+    // кладёт заглушку в поле @EJB resultService
+    <T> T injectInto(T service) throws ReflectiveOperationException {
+        Field field = service.getClass().getDeclaredField("resultService");
+        field.setAccessible(true);
+        field.set(service, this);
+        return service;
+    }
+
+    @Override
+    public void streamResultsForUser(long userId, Long after, Consumer<ResultView> consumer) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (i == rows.size() / 2) {
+                duringLoad.run();
+                if (failuresLeft > 0) {
+                    failuresLeft--;
+                    throw new IllegalStateException("connection lost");
+                }
+            }
+            consumer.accept(rows.get(i));
+        }
+    }
+}
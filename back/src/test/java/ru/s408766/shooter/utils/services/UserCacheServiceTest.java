@@ -0,0 +1,81 @@
+package ru.s408766.shooter.utils.services;
+
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.models.UserCredentials;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheServiceTest {
+    private static final String LOGIN = "user@example.com";
+    private static final UserCredentials OLD = new UserCredentials(1, LOGIN, "old-hash");
+    private static final UserCredentials NEW = new UserCredentials(1, LOGIN, "new-hash");
+
+    @Test
+    void loadStartedBeforeInvalidateIsNotCached() throws Exception {
+        UserCacheService cache = new UserCacheService();
+        AtomicReference<UserCredentials> row = new AtomicReference<>(OLD);
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        // загрузка читает строку до смены пароля, а отдаёт её уже после invalidateUser
+        CompletableFuture<UserCredentials> slowLoad = CompletableFuture.supplyAsync(() -> cache.getUser(LOGIN, login -> {
+            UserCredentials value = row.get();
+            read.countDown();
+            try {
+                assertTrue(invalidated.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return value;
+        }));
+        assertTrue(read.await(10, TimeUnit.SECONDS));
+        row.set(NEW);
+        cache.invalidateUser(LOGIN);
+        invalidated.countDown();
+        assertEquals(OLD, slowLoad.get(10, TimeUnit.SECONDS));
+
+        assertEquals(NEW, cache.getUser(LOGIN, login -> row.get()));
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        UserCacheService cache = new UserCacheService();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<UserCredentials> first = CompletableFuture.supplyAsync(() -> cache.getUser(LOGIN, login -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return OLD;
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<UserCredentials> second = CompletableFuture.supplyAsync(() -> cache.getUser(LOGIN, login -> {
+            loads.incrementAndGet();
+            return NEW;
+        }));
+        release.countDown();
+        assertEquals(OLD, first.get(10, TimeUnit.SECONDS));
+        assertEquals(OLD, second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void missingUserIsNotCached() {
+        UserCacheService cache = new UserCacheService();
+        assertNull(cache.getUser(LOGIN, login -> null));
+        assertEquals(NEW, cache.getUser(LOGIN, login -> NEW));
+    }
+}
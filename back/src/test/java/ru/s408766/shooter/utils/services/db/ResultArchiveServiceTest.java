@@ -0,0 +1,209 @@
+package ru.s408766.shooter.utils.services.db;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.s408766.shooter.utils.models.ResultArchive;
+import ru.s408766.shooter.utils.models.ResultView;
+import ru.s408766.shooter.utils.models.ShotColumns;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Перенос в архив и чтения обоих слоёв на настоящем PostgreSQL (встроенном, с миграциями приложения).
+// Если встроенный PostgreSQL не стартует на этой машине, тест пропускается
+class ResultArchiveServiceTest {
+    private static final long USER_ID = 1;
+    private static final long OLD = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(200);
+    private static final long YOUNG = System.currentTimeMillis();
+
+    static {
+        // каталог архива читается при загрузке ResultArchiveService
+        try {
+            System.setProperty("shooter.archive.dir", Files.createTempDirectory("shooter-archive-test").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+    private static EntityManagerFactory entityManagerFactory;
+
+    // контейнера нет: транзакция на удаление открывается здесь, как её открыл бы EJB
+    private static final class LocalResultService extends ResultService {
+        private final EntityManager em;
+        private Runnable afterArchiveRead = () -> {
+        };
+
+        LocalResultService(EntityManager em) {
+            this.em = em;
+        }
+
+        @Override
+        public void streamResultsForArchive(long userId, long upTo, Consumer<ResultView> consumer) {
+            super.streamResultsForArchive(userId, upTo, consumer);
+            afterArchiveRead.run();
+        }
+
+        @Override
+        public int deleteArchivedResults(long userId, long[] ids) {
+            em.getTransaction().begin();
+            int deleted = super.deleteArchivedResults(userId, ids);
+            em.getTransaction().commit();
+            return deleted;
+        }
+    }
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        dataSource = postgres.getPostgresDatabase();
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        entityManagerFactory = Persistence.createEntityManagerFactory("default", Map.of(
+                "jakarta.persistence.transactionType", "RESOURCE_LOCAL",
+                "jakarta.persistence.jtaDataSource", dataSource,
+                "jakarta.persistence.nonJtaDataSource", dataSource));
+        execute("INSERT INTO users (id, email, password) VALUES (" + USER_ID + ", 'archive@example.com', 'hash')");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (entityManagerFactory != null) entityManagerFactory.close();
+        if (postgres != null) postgres.close();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute(sql);
+        }
+    }
+
+    private static void insert(long time, long... ids) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO resultInfos " +
+                     "(id, shotX, shotY, shapeRadius, result, timestamp, executionTime, user_id) VALUES (?, ?, ?, 2, true, ?, 0, ?)")) {
+            for (long id : ids) {
+                statement.setLong(1, id);
+                statement.setDouble(2, id / 1000.0);
+                statement.setDouble(3, -id / 1000.0);
+                statement.setTimestamp(4, new Timestamp(time));
+                statement.setLong(5, USER_ID);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void inject(Object target, Class<?> owner, String name, Object value) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static long[] range(long from, long to) {
+        return LongStream.rangeClosed(from, to).toArray();
+    }
+
+    private static long[] concat(long[]... parts) {
+        return Arrays.stream(parts).flatMapToLong(LongStream::of).toArray();
+    }
+
+    private static long[] tableIds() throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             var resultSet = connection.createStatement().executeQuery(
+                     "SELECT id FROM resultInfos WHERE user_id = " + USER_ID + " ORDER BY id")) {
+            while (resultSet.next()) ids.add(resultSet.getLong(1));
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long[] streamedIds(ResultService resultService) {
+        List<ResultView> rows = new ArrayList<>();
+        resultService.streamResultsForUser(USER_ID, null, rows::add);
+        return rows.stream().mapToLong(ResultView::id).toArray();
+    }
+
+    private static long[] pageIds(ResultService resultService, Long after, int limit) {
+        return resultService.getResultsPage(USER_ID, after, limit).stream().mapToLong(ResultView::id).toArray();
+    }
+
+    @Test
+    void archiveKeepsEveryRowWithPooledIds() throws Exception {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        LocalResultService resultService = new LocalResultService(em);
+        ResultArchiveService archiveService = new ResultArchiveService();
+        inject(resultService, ResultService.class, "em", em);
+        inject(resultService, ResultService.class, "dataSource", dataSource);
+        inject(resultService, ResultService.class, "resultArchiveService", archiveService);
+        inject(archiveService, ResultArchiveService.class, "resultService", resultService);
+
+        insert(OLD, range(100, 109));
+        archiveService.archiveOldResults();
+        assertArrayEquals(new long[0], tableIds());
+        assertArrayEquals(range(100, 109), archiveService.read(USER_ID,
+                archive -> IntStream.range(0, archive.count()).mapToLong(archive::id).toArray()));
+
+        // 95 закоммичена после переноса (пул id), 105 осталась в таблице после оборванного удаления
+        insert(OLD, 95, 105, 200);
+        insert(YOUNG, 300);
+        long[] all = concat(new long[]{95}, range(100, 109), new long[]{200, 300});
+        assertArrayEquals(all, streamedIds(resultService));
+        assertArrayEquals(new long[]{95, 100, 101, 102, 103}, pageIds(resultService, null, 5));
+        assertArrayEquals(new long[]{109, 200, 300}, pageIds(resultService, 108L, 10));
+
+        // 150 из уже выбранного диапазона коммитится, пока перенос пишет файл: удалять её нельзя
+        resultService.afterArchiveRead = () -> insert(OLD, 150);
+        archiveService.archiveOldResults();
+        resultService.afterArchiveRead = () -> {
+        };
+        assertArrayEquals(new long[]{150, 300}, tableIds());
+        all = concat(new long[]{95}, range(100, 109), new long[]{150, 200, 300});
+        assertArrayEquals(all, streamedIds(resultService));
+        assertArrayEquals(new long[]{109, 150, 200}, pageIds(resultService, 108L, 3));
+
+        // следующий запуск вставляет 150 в середину файла
+        archiveService.archiveOldResults();
+        assertArrayEquals(new long[]{300}, tableIds());
+        assertEquals(13, (int) archiveService.read(USER_ID, ResultArchive::count));
+        assertArrayEquals(all, streamedIds(resultService));
+
+        ShotColumns shots = resultService.loadShotColumns(USER_ID);
+        assertEquals(all.length, shots.size());
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(all[i] / 1000.0, shots.xs()[i], 1e-6);
+        }
+        em.close();
+    }
+}
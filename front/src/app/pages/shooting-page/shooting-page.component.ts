@@ -391,19 +391,17 @@ export class ShootingPageComponent implements OnInit {
     return Math.round(x * 10) / 10;
   }
 
+  // startTime приходит в ISO-8601 (UTC), показываем в локальном времени
   convertDateString(dateString: string): string | null {
-    const parts = dateString.split(' ');
-    if (parts.length < 6) {
+    const date = new Date(dateString);
+    if (isNaN(date.getTime())) {
       throw new Error('Invalid date format');
     }
-    const timeSegment = parts[3];
-    const timezone = parts[4];
-    const timeParts = timeSegment.split(':');
-    if (timeParts.length < 2) {
-      throw new Error('Invalid time format');
-    }
-    const hours = timeParts[0].padStart(2, '0');
-    const minutes = timeParts[1].padStart(2, '0');
+    const hours = String(date.getHours()).padStart(2, '0');
+    const minutes = String(date.getMinutes()).padStart(2, '0');
+    const timezone = new Intl.DateTimeFormat([], { timeZoneName: 'short' })
+      .formatToParts(date)
+      .find((part) => part.type === 'timeZoneName')?.value;
     return `${hours}:${minutes}, ${timezone}`;
   }
 
@@ -1,6 +1,6 @@
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpHeaders } from '@angular/common/http';
-import { Observable, shareReplay, tap } from 'rxjs';
+import { Observable, map, shareReplay, tap } from 'rxjs';
 
 export interface ResultInfo {
   x: number;
@@ -25,6 +25,11 @@ export class ResultsService {
   private readonly API_URL =
     'http://localhost:8080/shooter-1.0-SNAPSHOT/api/results';
 
+  // Локальная копия результатов и версия снимка на сервере, которой она соответствует:
+  // get-results?since= возвращает только выстрелы после этой версии
+  private cachedResults: ResultInfo[] = [];
+  private resultsVersion: string | null = null;
+
   constructor(private http: HttpClient) {}
 
   private getHeaders(): HttpHeaders {
@@ -62,8 +67,20 @@ export class ResultsService {
     return this.http
       .get<ResultInfo[]>(`${this.API_URL}/get-results`, {
         headers: this.getHeaders(),
+        params: { since: this.resultsVersion ?? '0' },
+        observe: 'response',
       })
       .pipe(
+        map((response) => {
+          const results = response.body ?? [];
+          if (response.headers.get('X-Results-Reset') === 'false') {
+            this.cachedResults = this.cachedResults.concat(results);
+          } else {
+            this.cachedResults = results;
+          }
+          this.resultsVersion = response.headers.get('X-Results-Version');
+          return [...this.cachedResults];
+        }),
         shareReplay(1),
         tap({
           next: () => console.log('Results fetched successfully'),
@@ -80,7 +97,11 @@ export class ResultsService {
       .pipe(
         shareReplay(1),
         tap({
-          next: (response) => console.log('Results cleared successfully'),
+          next: (response) => {
+            this.cachedResults = [];
+            this.resultsVersion = null;
+            console.log('Results cleared successfully');
+          },
           error: (err) => console.error('Failed to clear results:', err),
         })
       );